@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.app.rs;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * Lightweight HTTP liveness and readiness probes, answered from the cached result of 
+ * the scheduled health checks, i.e. no checks are performed per request.
+ * 
+ * @author Peter
+ *
+ */
+@Path("/")
+public interface HealthProducer {
+
+    /**
+     * Returns if the application is alive, i.e. is able to serve HTTP requests.
+     * 
+     * @return status 200 (OK).
+     */
+    @GET
+    @Path("/live")
+    @Produces("application/json")
+    Response live();
+
+    /**
+     * Returns if the application is ready to serve requests, i.e. the last health check was
+     * successful and recent.
+     * 
+     * @return status 200 (OK) with the last health status when ready, otherwise 503 (Service Unavailable).
+     */
+    @GET
+    @Path("/ready")
+    @Produces("application/json")
+    Response ready();
+}
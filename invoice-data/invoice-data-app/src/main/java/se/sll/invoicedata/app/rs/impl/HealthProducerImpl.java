@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.app.rs.impl;
+
+import javax.ws.rs.core.Response;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import se.sll.invoicedata.app.rs.HealthProducer;
+import se.sll.invoicedata.core.service.HealthService;
+
+/**
+ * Implements HTTP liveness and readiness probes.
+ * 
+ * @author Peter
+ *
+ */
+public class HealthProducerImpl implements HealthProducer {
+
+    private static final String LIVE = "{ \"status\": \"UP\" }";
+
+    @Autowired
+    private HealthService healthService;
+
+    @Override
+    public Response live() {
+        return Response.ok(LIVE).build();
+    }
+
+    @Override
+    public Response ready() {
+        final Response.Status status = healthService.isReady() ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE;
+        return Response.status(status).entity(healthService.getHealthStatus().toString()).build();
+    }
+}
@@ -37,7 +37,9 @@ import riv.sll.invoicedata._1.ResultCodeEnum;
 import se.sll.invoicedata.core.access.Operation;
 import se.sll.invoicedata.core.jmx.StatusBean;
 import se.sll.invoicedata.core.security.User;
+import se.sll.invoicedata.core.service.HealthService;
 import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
+import se.sll.invoicedata.core.service.InvoiceDataJobService;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.service.OperationAccessConfigService;
@@ -57,6 +59,12 @@ public abstract class AbstractProducer {
     @Autowired
     private InvoiceDataService invoiceDataService;
     
+    @Autowired
+    private InvoiceDataJobService invoiceDataJobService;
+    
+    @Autowired
+    private HealthService healthService;
+    
     @Autowired
     private OperationAccessConfigService operationAccessConfigService;
     
@@ -105,6 +113,24 @@ public abstract class AbstractProducer {
         return invoiceDataService;
     }
     
+    /**
+     * Returns the invoice data job service.
+     * 
+     * @return the invoice data job service.
+     */
+    protected InvoiceDataJobService getInvoiceDataJobService() {
+        return invoiceDataJobService;
+    }
+    
+    /**
+     * Returns the health service.
+     * 
+     * @return the health service.
+     */
+    protected HealthService getHealthService() {
+        return healthService;
+    }
+    
     /**
      * Returns status bean.
      * 
@@ -158,13 +184,12 @@ public abstract class AbstractProducer {
         final String path = (String)messageContext.get(MessageContext.PATH_INFO);
         statusBean.start(path);
         log(messageContext);
-        final ResultCode rc = new ResultCode();
+        ResultCode rc;
         try {
             runnable.run();
-            rc.setCode(ResultCodeEnum.OK);
+            rc = createResultCode(null);
         } catch (InvoiceDataServiceException ex) {
-            rc.setCode((ex.getCode() == InvoiceDataErrorCodeEnum.NOTFOUND_ERROR) ? ResultCodeEnum.NOTFOUND_ERROR : ResultCodeEnum.REQUEST_ERROR);
-            rc.setMessage(ex.getMessage() + " (" + statusBean.getGUID() + ")");
+            rc = createResultCode(ex);
             log.error(createLogMessage(ex.getMessage()));
         } catch (Throwable throwable) {
             throw createSoapFault(throwable);
@@ -175,6 +200,23 @@ public abstract class AbstractProducer {
         return rc;
     }
 
+    /**
+     * Creates a result code.
+     * 
+     * @param ex the service exception, or null if successful.
+     * @return the result code.
+     */
+    protected ResultCode createResultCode(final InvoiceDataServiceException ex) {
+        final ResultCode rc = new ResultCode();
+        if (ex == null) {
+            rc.setCode(ResultCodeEnum.OK);
+        } else {
+            rc.setCode((ex.getCode() == InvoiceDataErrorCodeEnum.NOTFOUND_ERROR) ? ResultCodeEnum.NOTFOUND_ERROR : ResultCodeEnum.REQUEST_ERROR);
+            rc.setMessage(ex.getMessage() + " (" + statusBean.getGUID() + ")");
+        }
+        return rc;
+    }
+
 	public void throwExceptionIfSystemHasNoAccessToOperation(final Operation operationEnum) {
 		if (!isOpenToAllSystems()) {			
 			String hsaID = getHSAId();
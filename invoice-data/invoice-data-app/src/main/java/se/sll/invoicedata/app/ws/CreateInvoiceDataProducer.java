@@ -26,7 +26,7 @@ import riv.sll.invoicedata.createinvoicedataresponder._1.ObjectFactory;
 import se.sll.invoicedata.core.access.Operation;
 
 /**
- * Creates invoice data.
+ * Creates invoice data, or submits a job creating invoice data when asynchronous is requested.
  * 
  * @author muqkha
  */
@@ -46,7 +46,11 @@ public class CreateInvoiceDataProducer extends AbstractProducer implements Creat
             public void run() {
             	throwExceptionIfSystemHasNoAccessToOperation(Operation.CREATE_INVOICE_DATA); 
             	throwExceptionIfSupplierHasNoAccessToOperation(Operation.CREATE_INVOICE_DATA, parameters.getSupplierId());
-                createInvoiceDataResp.setReferenceId(getInvoiceDataService().createInvoiceData(parameters));                
+                if (Boolean.TRUE.equals(parameters.isAsynchronous())) {
+                    createInvoiceDataResp.setJobId(getInvoiceDataJobService().submitCreateInvoiceData(parameters));
+                } else {
+                    createInvoiceDataResp.setReferenceId(getInvoiceDataService().createInvoiceData(parameters));
+                }
             }
         }));
         
@@ -19,11 +19,13 @@
 
 package se.sll.invoicedata.app.ws;
 
+import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.getinvoicedata._1.rivtabp21.GetInvoiceDataResponderInterface;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataResponse;
 import riv.sll.invoicedata.getinvoicedataresponder._1.ObjectFactory;
 import se.sll.invoicedata.core.access.Operation;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 
 /**
  * 
@@ -47,9 +49,15 @@ public class GetInvoiceDataProducer extends AbstractProducer implements GetInvoi
             	throwExceptionIfSystemHasNoAccessToOperation(Operation.GET_INVOICE_DATA);
             	throwExceptionIfSupplierHasNoAccessToOperation(Operation.GET_INVOICE_DATA, request.getSupplierId());
             	
-                //Fetching unprocessed events with price
-                response.getRegisteredEventList().addAll(getInvoiceDataService()
-                        .getAllUnprocessedBusinessEvents(request));
+                //Fetching unprocessed events with price, paged when requested
+                if (isPaged(request)) {
+                    final ResultPage<RegisteredEvent> page = getInvoiceDataService().getUnprocessedBusinessEventsPage(request);
+                    response.getRegisteredEventList().addAll(page.getContent());
+                    response.setContinuationToken(page.getContinuationToken());
+                } else {
+                    response.getRegisteredEventList().addAll(getInvoiceDataService()
+                            .getAllUnprocessedBusinessEvents(request));
+                }
                                
             }
         }));
@@ -57,4 +65,9 @@ public class GetInvoiceDataProducer extends AbstractProducer implements GetInvoi
         return response;
     }
 
+    //
+    static boolean isPaged(final GetInvoiceDataRequest request) {
+        return request.getPageSize() != null || request.getContinuationToken() != null;
+    }
+
 }
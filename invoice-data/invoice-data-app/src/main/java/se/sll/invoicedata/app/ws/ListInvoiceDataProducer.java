@@ -19,11 +19,13 @@
 
 package se.sll.invoicedata.app.ws;
 
+import riv.sll.invoicedata._1.InvoiceDataHeader;
 import riv.sll.invoicedata.listinvoicedata._1.rivtabp21.ListInvoiceDataResponderInterface;
 import riv.sll.invoicedata.listinvoicedataresponder._1.ListInvoiceDataRequest;
 import riv.sll.invoicedata.listinvoicedataresponder._1.ListInvoiceDataResponse;
 import riv.sll.invoicedata.listinvoicedataresponder._1.ObjectFactory;
 import se.sll.invoicedata.core.access.Operation;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 
 /**
  * 
@@ -46,11 +48,23 @@ public class ListInvoiceDataProducer extends AbstractProducer implements ListInv
 			public void run() {
 				throwExceptionIfSystemHasNoAccessToOperation(Operation.LIST_INVOICE_DATA);
 				throwExceptionIfSupplierHasNoAccessToOperation(Operation.LIST_INVOICE_DATA, parameters.getSupplierId());
-			    listIDataResponse.getInvoiceDataList().addAll(getInvoiceDataService().listAllInvoiceData(parameters));                
+				// paged when requested
+				if (isPaged(parameters)) {
+				    final ResultPage<InvoiceDataHeader> page = getInvoiceDataService().listInvoiceDataPage(parameters);
+				    listIDataResponse.getInvoiceDataList().addAll(page.getContent());
+				    listIDataResponse.setContinuationToken(page.getContinuationToken());
+				} else {
+				    listIDataResponse.getInvoiceDataList().addAll(getInvoiceDataService().listAllInvoiceData(parameters));
+				}
 			}
 		}));
 		
 		return listIDataResponse;
 	}
 
+    //
+    static boolean isPaged(final ListInvoiceDataRequest request) {
+        return request.getPageSize() != null || request.getContinuationToken() != null;
+    }
+
 }
@@ -30,9 +30,10 @@ import se.riv.itintegration.monitoring.rivtabp21.v1.PingForConfigurationResponde
 import se.riv.itintegration.monitoring.v1.ObjectFactory;
 import se.riv.itintegration.monitoring.v1.PingForConfigurationResponseType;
 import se.riv.itintegration.monitoring.v1.PingForConfigurationType;
+import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
 
 /**
- * System check.
+ * System check, i.e. answers with the cached result of the scheduled health checks.
  * 
  * @author Peter
  *
@@ -62,7 +63,10 @@ public class PingForConfigurationProducer extends AbstractProducer implements Pi
             public void run() {
                 response.setVersion(applicationVersion);
                 response.setPingDateTime(formatter.get().format(new Date()));
-                getStatusBean().healthCheck();
+                // answered from the last scheduled health check
+                if (!getHealthService().isReady()) {
+                    throw InvoiceDataErrorCodeEnum.TECHNICAL_ERROR.createException(getHealthService().getHealthStatus());
+                }
             }
         });
         
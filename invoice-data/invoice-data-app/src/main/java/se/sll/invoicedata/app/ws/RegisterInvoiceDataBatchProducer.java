@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.app.ws;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata.registerinvoicedatabatch._1.rivtabp21.RegisterInvoiceDataBatchResponderInterface;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.EventResult;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.ObjectFactory;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.RegisterInvoiceDataBatchRequest;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.RegisterInvoiceDataBatchResponse;
+import se.sll.invoicedata.core.access.Operation;
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+
+/**
+ * Registers batches of new business events, with one result code per event.
+ * 
+ * @author Peter
+ */
+public class RegisterInvoiceDataBatchProducer extends AbstractProducer implements RegisterInvoiceDataBatchResponderInterface {
+    static final ObjectFactory objectFactory = new ObjectFactory();
+
+    @Override
+    public RegisterInvoiceDataBatchResponse registerInvoiceDataBatch(
+            final String logicalAddress, final RegisterInvoiceDataBatchRequest parameters) {
+
+        final RegisterInvoiceDataBatchResponse response = objectFactory.createRegisterInvoiceDataBatchResponse();
+
+        response.setResultCode(fulfill(new Runnable() {
+            @Override
+            public void run() {
+                throwExceptionIfSystemHasNoAccessToOperation(Operation.REGISTER_INVOICE_DATA);
+                for (final String supplierId : supplierIds(parameters.getEventList())) {
+                    throwExceptionIfSupplierHasNoAccessToOperation(Operation.REGISTER_INVOICE_DATA, supplierId);
+                }
+                final List<Event> events = parameters.getEventList();
+                final List<InvoiceDataServiceException> results = getInvoiceDataService().registerEvents(events);
+                for (int i = 0; i < events.size(); i++) {
+                    final EventResult eventResult = objectFactory.createEventResult();
+                    eventResult.setEventId(events.get(i).getEventId());
+                    eventResult.setResultCode(createResultCode(results.get(i)));
+                    response.getEventResultList().add(eventResult);
+                }
+            }
+        }));
+
+        return response;
+    }
+
+    //
+    static Set<String> supplierIds(final List<Event> events) {
+        final Set<String> supplierIds = new LinkedHashSet<String>();
+        for (final Event event : events) {
+            // missing supplier ids are rejected per event by validation
+            if (event.getSupplierId() != null) {
+                supplierIds.add(event.getSupplierId());
+            }
+        }
+        return supplierIds;
+    }
+}
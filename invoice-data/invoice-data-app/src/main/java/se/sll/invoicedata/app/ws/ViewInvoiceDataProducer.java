@@ -19,16 +19,17 @@
 
 package se.sll.invoicedata.app.ws;
 
-import riv.sll.invoicedata._1.InvoiceData;
+import riv.sll.invoicedata._1.JobStatusEnum;
 import riv.sll.invoicedata.viewinvoicedata._1.rivtabp21.ViewInvoiceDataResponderInterface;
 import riv.sll.invoicedata.viewinvoicedataresponder._1.ObjectFactory;
 import riv.sll.invoicedata.viewinvoicedataresponder._1.ViewInvoiceDataRequest;
 import riv.sll.invoicedata.viewinvoicedataresponder._1.ViewInvoiceDataResponse;
 import se.sll.invoicedata.core.access.Operation;
+import se.sll.invoicedata.core.service.dto.InvoiceDataJob;
 
 /**
  * 
- * Returns all events for a specific invoice data object.
+ * Returns all events for a specific invoice data object, or the status of an asynchronous create invoice data job.
  * 
  * @author muqkha
  */
@@ -47,8 +48,12 @@ public class ViewInvoiceDataProducer extends AbstractProducer implements ViewInv
         public void run() {
         	throwExceptionIfSystemHasNoAccessToOperation(Operation.VIEW_INVOICE_DATA);
         	
-        	InvoiceData invoiceData = getInvoiceDataService().getInvoiceDataByReferenceId(parameters.getReferenceId());
-        	throwExceptionIfSupplierHasNoAccessToOperation(Operation.VIEW_INVOICE_DATA, invoiceData.getSupplierId());
+        	if (getInvoiceDataJobService().isJobId(parameters.getReferenceId())) {
+        	    viewJob(parameters.getReferenceId(), viewIDataResponse);
+        	    return;
+        	}
+        	final String supplierId = getInvoiceDataService().getSupplierIdByReferenceId(parameters.getReferenceId());
+        	throwExceptionIfSupplierHasNoAccessToOperation(Operation.VIEW_INVOICE_DATA, supplierId);
             viewIDataResponse.setInvoiceData(getInvoiceDataService().getInvoiceDataByReferenceId(parameters.getReferenceId()));
         }
     }));
@@ -56,5 +61,21 @@ public class ViewInvoiceDataProducer extends AbstractProducer implements ViewInv
     return viewIDataResponse;
     }
 
+    // returns job status, and the invoice data when the job has completed
+    void viewJob(final String jobId, final ViewInvoiceDataResponse viewIDataResponse) {
+        final InvoiceDataJob job = getInvoiceDataJobService().getJob(jobId);
+        throwExceptionIfSupplierHasNoAccessToOperation(Operation.VIEW_INVOICE_DATA, job.getSupplierId());
+        viewIDataResponse.setJobStatus(JobStatusEnum.valueOf(job.getStatus().name()));
+        switch (job.getStatus()) {
+        case COMPLETED:
+            viewIDataResponse.setInvoiceData(getInvoiceDataService().getInvoiceDataByReferenceId(job.getReferenceId()));
+            break;
+        case FAILED:
+            throw job.getFailure();
+        default:
+            break;
+        }
+    }
+
 
 }
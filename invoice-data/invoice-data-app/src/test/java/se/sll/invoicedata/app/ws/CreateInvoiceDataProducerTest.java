@@ -34,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata._1.JobStatusEnum;
 import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata._1.ResultCodeEnum;
 import riv.sll.invoicedata.createinvoicedata._1.rivtabp21.CreateInvoiceDataResponderInterface;
@@ -44,6 +45,8 @@ import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataResponse;
 import riv.sll.invoicedata.registerinvoicedata._1.rivtabp21.RegisterInvoiceDataResponderInterface;
 import riv.sll.invoicedata.registerinvoicedataresponder._1.RegisterInvoiceDataResponse;
+import riv.sll.invoicedata.viewinvoicedataresponder._1.ViewInvoiceDataRequest;
+import riv.sll.invoicedata.viewinvoicedataresponder._1.ViewInvoiceDataResponse;
 import se.sll.invoicedata.app.TestSupport;
 
 /**
@@ -131,6 +134,35 @@ public class CreateInvoiceDataProducerTest extends TestSupport {
         assertNull(resp.getReferenceId());
     }
 
+    
+    @Test
+    public void testCreate_asynchronous() throws InterruptedException {
+        final int n = 10;
+        String supplierId1 = genRandomAlphaNData(5);
+        register(supplierId1, "HSF", n);
+        
+        CreateInvoiceDataRequest req = request(supplierId1, "HSF");
+        req.setAsynchronous(true);
+        CreateInvoiceDataResponse resp = createInvoiceDataResponderInterface.createInvoiceData(LOGICAL_ADDRESS, req);
+        assertEquals(ResultCodeEnum.OK, resp.getResultCode().getCode());
+        assertNull(resp.getReferenceId());
+        assertNotNull(resp.getJobId());
+        
+        ViewInvoiceDataRequest viewReq = new ViewInvoiceDataRequest();
+        viewReq.setReferenceId(resp.getJobId());
+        ViewInvoiceDataResponse viewResp = null;
+        for (int i = 0; i < 100; i++) {
+            viewResp = ViewInvoiceDataProducerTest.getViewInvoiceDataService().viewInvoiceData(LOGICAL_ADDRESS, viewReq);
+            assertEquals(ResultCodeEnum.OK, viewResp.getResultCode().getCode());
+            if (viewResp.getJobStatus() == JobStatusEnum.COMPLETED) {
+                break;
+            }
+            Thread.sleep(100L);
+        }
+        assertEquals(JobStatusEnum.COMPLETED, viewResp.getJobStatus());
+        assertEquals(n, viewResp.getInvoiceData().getRegisteredEventList().size());
+    }
+
 
     public static CreateInvoiceDataResponderInterface getCreateInvoiceDataService() {
         if (createInvoiceDataResponderInterface == null) {
@@ -92,6 +92,30 @@ public class GetInvoiceDataProducerTest extends TestSupport {
 		Assert.assertFalse(response.getRegisteredEventList().isEmpty());
 	}
 
+	@Test
+	public void get_InvoiceData_Unprocessed_Events_Paged_Success() {
+		GetInvoiceDataRequest request = new GetInvoiceDataRequest();
+		request.setSupplierId(unprocessedInvoiceData[0].getSupplierId());
+		request.setPageSize(1);
+
+		GetInvoiceDataResponse response = getIDRInterface.getInvoiceData(LOGICAL_ADDRESS, request);
+
+		Assert.assertEquals(ResultCodeEnum.OK, response.getResultCode().getCode());
+		Assert.assertEquals(1, response.getRegisteredEventList().size());
+
+		int n = response.getRegisteredEventList().size();
+		while (response.getContinuationToken() != null) {
+			request.setContinuationToken(response.getContinuationToken());
+			response = getIDRInterface.getInvoiceData(LOGICAL_ADDRESS, request);
+			Assert.assertEquals(ResultCodeEnum.OK, response.getResultCode().getCode());
+			n += response.getRegisteredEventList().size();
+		}
+
+		request.setPageSize(null);
+		request.setContinuationToken(null);
+		Assert.assertEquals(getIDRInterface.getInvoiceData(LOGICAL_ADDRESS, request).getRegisteredEventList().size(), n);
+	}
+
 	@Test
 	public void get_InvoiceData_Based_On_Different_Request_Parameters() {				
 		//Fetch by only supplier id
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.app.ws;
+
+import java.math.BigDecimal;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata._1.ResultCodeEnum;
+import riv.sll.invoicedata.registerinvoicedatabatch._1.rivtabp21.RegisterInvoiceDataBatchResponderInterface;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.RegisterInvoiceDataBatchRequest;
+import riv.sll.invoicedata.registerinvoicedatabatchresponder._1.RegisterInvoiceDataBatchResponse;
+import se.sll.invoicedata.app.TestSupport;
+
+public class RegisterInvoiceDataBatchProducerTest extends TestSupport {
+
+	private static RegisterInvoiceDataBatchResponderInterface regIDBRInterface;
+
+	@BeforeClass
+	public static void setUp() {
+		regIDBRInterface = createWebServiceConsumer(RegisterInvoiceDataBatchResponderInterface.class);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		regIDBRInterface = null;
+	}
+
+	@Test
+	public void registerInvoiceDataBatch_normal_test_result_pass() {
+		final RegisterInvoiceDataBatchRequest request = new RegisterInvoiceDataBatchRequest();
+		for (final Event event : createTestData()) {
+			request.getEventList().add(event);
+		}
+
+		RegisterInvoiceDataBatchResponse response = regIDBRInterface
+				.registerInvoiceDataBatch(LOGICAL_ADDRESS, request);
+
+		Assert.assertEquals(ResultCodeEnum.OK, response.getResultCode().getCode());
+		Assert.assertEquals(request.getEventList().size(), response.getEventResultList().size());
+		for (int i = 0; i < request.getEventList().size(); i++) {
+			Assert.assertEquals(request.getEventList().get(i).getEventId(), response.getEventResultList().get(i).getEventId());
+			Assert.assertEquals(ResultCodeEnum.OK, response.getEventResultList().get(i).getResultCode().getCode());
+		}
+	}
+
+	@Test
+	public void registerInvoiceDataBatch_with_incorrect_qty_fail() {
+		final Event invalid = createRandomEventData();
+		invalid.getItemList().get(0).setQty(new BigDecimal(-2));
+
+		final RegisterInvoiceDataBatchRequest request = new RegisterInvoiceDataBatchRequest();
+		request.getEventList().add(createRandomEventData());
+		request.getEventList().add(invalid);
+
+		RegisterInvoiceDataBatchResponse response = regIDBRInterface
+				.registerInvoiceDataBatch(LOGICAL_ADDRESS, request);
+
+		Assert.assertEquals(ResultCodeEnum.OK, response.getResultCode().getCode());
+		Assert.assertEquals(ResultCodeEnum.OK, response.getEventResultList().get(0).getResultCode().getCode());
+		Assert.assertEquals(ResultCodeEnum.REQUEST_ERROR, response.getEventResultList().get(1).getResultCode().getCode());
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.jmx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Collects connection pool metrics, i.e. connection acquire and usage times are recorded
+ * as performance metrics, and pool usage is available as gauges through the {@link StatusBean}. <p>
+ * 
+ * Plugged into the connection pool as a metrics tracker factory (see <code>invoice-data-service.xml</code>).
+ * 
+ * @author Peter
+ *
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    static final String ACQUIRE = "DataSource.getConnection()";
+    static final String USAGE = "DataSource.connectionUsage()";
+
+    private volatile PoolStats poolStats;
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @Override
+    public MetricsTracker create(final String poolName, final PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new MetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos) {
+                StatusBean.getMetricsRegistry().record(ACQUIRE, elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(final long elapsedBorrowedMillis) {
+                StatusBean.getMetricsRegistry().record(USAGE, TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    //
+    public int getActiveConnections() {
+        return (poolStats == null) ? 0 : poolStats.getActiveConnections();
+    }
+
+    //
+    public int getIdleConnections() {
+        return (poolStats == null) ? 0 : poolStats.getIdleConnections();
+    }
+
+    //
+    public int getTotalConnections() {
+        return (poolStats == null) ? 0 : poolStats.getTotalConnections();
+    }
+
+    // threads waiting for a connection, i.e. the pool is saturated
+    public int getPendingThreads() {
+        return (poolStats == null) ? 0 : poolStats.getPendingThreads();
+    }
+
+    // failed attempts to get a connection within the connection timeout
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+}
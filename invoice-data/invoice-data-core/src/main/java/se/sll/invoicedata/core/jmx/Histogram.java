@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.jmx;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of elapsed time (nanoseconds) for a given history of measurements. <p>
+ * 
+ * Measurements are added to a ring buffer without locking, and statistics are calculated 
+ * from a snapshot of the buffer when requested.
+ * 
+ * @author Peter
+ */
+public class Histogram {
+    private final String name;
+    private final AtomicLongArray history;
+    private final AtomicLong count = new AtomicLong();
+
+    //
+    public Histogram(String name, int len) {
+        this.name = name;
+        this.history = new AtomicLongArray(len);
+        for (int i = 0; i < len; i++) {
+            history.set(i, -1L);
+        }
+    }
+
+    //
+    public String name() {
+        return name;
+    }
+    
+    //
+    public void add(long nanos) {
+        final long n = count.getAndIncrement();
+        history.lazySet((int) (n % history.length()), nanos);
+    }
+
+    //
+    public long count() {
+        return count.get();
+    }
+    
+    /**
+     * Returns statistics calculated from the current history.
+     * 
+     * @return the statistics.
+     */
+    public Snapshot snapshot() {
+        final long[] values = new long[history.length()];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            final long t = history.get(i);
+            if (t >= 0) {
+                values[n++] = t;
+            }
+        }
+        Arrays.sort(values, 0, n);
+        return new Snapshot(name, count(), Arrays.copyOf(values, n));
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * Statistics for a history of measurements, all times in nanoseconds.
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long count;
+        private final long[] sorted;
+        private final long avg;
+        
+        //
+        Snapshot(String name, long count, long[] sorted) {
+            this.name = name;
+            this.count = count;
+            this.sorted = sorted;
+            long sum = 0L;
+            for (final long t : sorted) {
+                sum += t;
+            }
+            this.avg = (sorted.length == 0) ? 0L : (sum / sorted.length);
+        }
+        
+        //
+        public long n() {
+            return sorted.length;
+        }
+
+        //
+        public long count() {
+            return count;
+        }
+        
+        //
+        public long min() {
+            return (sorted.length == 0) ? 0L : sorted[0];
+        }
+
+        //
+        public long max() {
+            return (sorted.length == 0) ? 0L : sorted[sorted.length - 1];
+        }
+
+        //
+        public long avg() {
+            return avg;
+        }
+        
+        /**
+         * Returns a percentile (nearest rank).
+         * 
+         * @param p the percentile, 0.0 - 1.0
+         * @return the value.
+         */
+        public long percentile(double p) {
+            if (sorted.length == 0) {
+                return 0L;
+            }
+            final int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.min(sorted.length, Math.max(rank, 1)) - 1];
+        }
+        
+        //
+        static double millis(long nanos) {
+            return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1L);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, 
+                    "{ name: \"%s\", count: %d, history: %d, min: %.3f, max: %.3f, avg: %.3f, p50: %.3f, p95: %.3f, p99: %.3f }", 
+                    name, count(), n(), millis(min()), millis(max()), millis(avg()), 
+                    millis(percentile(0.50)), millis(percentile(0.95)), millis(percentile(0.99)));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.jmx;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe registry of named histograms, one per instrumented operation.
+ * 
+ * @author Peter
+ */
+public class MetricsRegistry {
+    
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+    
+    private volatile int historyLength;
+    
+    //
+    public MetricsRegistry(int historyLength) {
+        this.historyLength = historyLength;
+    }
+
+    /**
+     * Records an elapsed time for an operation.
+     * 
+     * @param name the operation name.
+     * @param nanos the elapsed time in nanoseconds.
+     */
+    public void record(final String name, final long nanos) {
+        histogram(name).add(nanos);
+    }
+    
+    /**
+     * Returns the histogram for an operation, and it's created if it doesn't exist.
+     * 
+     * @param name the operation name.
+     * @return the histogram.
+     */
+    public Histogram histogram(final String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            final Histogram created = new Histogram(name, historyLength);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    //
+    public Collection<Histogram> histograms() {
+        return histograms.values();
+    }
+
+    //
+    public Set<String> names() {
+        return histograms.keySet();
+    }
+    
+    //
+    public void clear() {
+        histograms.clear();
+    }
+
+    //
+    public int getHistoryLength() {
+        return historyLength;
+    }
+
+    /**
+     * Sets the history length, and applies to histograms created after this call.
+     * 
+     * @param historyLength the length.
+     */
+    public void setHistoryLength(int historyLength) {
+        this.historyLength = historyLength;
+    }
+}
@@ -19,13 +19,20 @@
 
 package se.sll.invoicedata.core.jmx;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
-import java.util.Stack;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,8 +44,9 @@ import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.jmx.support.MetricType;
 import org.springframework.stereotype.Component;
 
-import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
-import se.sll.invoicedata.core.model.repository.InvoiceDataRepository;
+import se.sll.invoicedata.core.service.HealthService;
+import se.sll.invoicedata.core.service.InvoiceDataJobService;
+import se.sll.invoicedata.core.service.dto.HealthStatus;
 
 /**
  * JMX Bean to keep track of application status. <p>
@@ -55,59 +63,43 @@ public class StatusBean {
     private static final Logger log = LoggerFactory.getLogger(StatusBean.class);
 
     @Autowired
-    private InvoiceDataRepository invoiceDataRepository;
+    private HealthService healthService;
 
-    //
-    private int historyLength = 1000;
+    @Autowired
+    private InvoiceDataJobService invoiceDataJobService;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
     
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
     //
-    private static ThreadLocal<Stack<Sample>> samples = new ThreadLocal<Stack<Sample>>() {
+    private static ThreadLocal<Deque<Sample>> samples = new ThreadLocal<Deque<Sample>>() {
         @Override
-        public Stack<Sample> initialValue() {
-            return new Stack<Sample>();
+        public Deque<Sample> initialValue() {
+            return new ArrayDeque<Sample>();
         }
     };
 
     //
-    private static Map<String, HistoryTimer> timerMap = new HashMap<String, HistoryTimer>();
+    private static MetricsRegistry metrics = new MetricsRegistry(1000);
 
     //
     private static Concurrency concurrency = new Concurrency();
 
-    // checks database
-    private void checkDatabase() {
-        invoiceDataRepository.findOne(0L);
-        log.info("health-check database: OK");
-    }
-
-    // checks rating
-    private void checkRating() {
-        log.info("health-check rating: OK");
-    }
-
-    private void checkAlloc() {
-        final byte[] bytes = new byte[1024 * 1024];
-        for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte)0xff;
+    @ManagedOperation(description="Performs health check now, i.e. are connections working as expected, and fails if not")
+    public void healthCheck() {
+        final HealthStatus status = healthService.check();
+        if (!status.isHealthy()) {
+            throw new IllegalStateException(status.getMessage());
         }
-        log.info("health-check memory alloc: OK");
-    }
-
-    //
-    private void checkLog() {
-        final String msg = "health-check log: OK";
-        log.error(msg);
-        log.debug(msg);
-        log.trace(msg);
-        log.info(msg);
+        log.info("health-check: OK");
     }
 
-    @ManagedOperation(description="Performs health check, i.e. are connections, memory, logs working as expected")
-    public void healthCheck() {
-        checkDatabase();
-        checkRating();
-        checkAlloc();
-        checkLog();
+    @ManagedAttribute(description="Returns the last (cached) health check result, checks are run on a schedule")
+    public String getHealthStatus() {
+        return healthService.getHealthStatus().toString();
     }
 
 
@@ -121,39 +113,129 @@ public class StatusBean {
         return concurrency.getTotalRequests();
     }
 
-    @ManagedOperation(description="Returns performance metrics (JSON strings) in millisceonds for all instrumented operations")
+    @ManagedMetric(category="jobs", displayName="Create invoice data jobs waiting in queue", metricType=MetricType.GAUGE, unit="job")
+    public int getQueuedJobs() {
+        return invoiceDataJobService.getQueuedJobs();
+    }
+
+    @ManagedMetric(category="jobs", displayName="Running create invoice data jobs", metricType=MetricType.GAUGE, unit="job")
+    public int getRunningJobs() {
+        return invoiceDataJobService.getRunningJobs();
+    }
+
+    @ManagedMetric(category="database", displayName="Connections in use", metricType=MetricType.GAUGE, unit="connection")
+    public int getActiveConnections() {
+        return connectionPoolMetrics.getActiveConnections();
+    }
+
+    @ManagedMetric(category="database", displayName="Idle connections", metricType=MetricType.GAUGE, unit="connection")
+    public int getIdleConnections() {
+        return connectionPoolMetrics.getIdleConnections();
+    }
+
+    @ManagedMetric(category="database", displayName="Open connections (in use and idle)", metricType=MetricType.GAUGE, unit="connection")
+    public int getTotalConnections() {
+        return connectionPoolMetrics.getTotalConnections();
+    }
+
+    @ManagedMetric(category="database", displayName="Threads waiting for a connection (pool saturated)", metricType=MetricType.GAUGE, unit="thread")
+    public int getPendingConnectionRequests() {
+        return connectionPoolMetrics.getPendingThreads();
+    }
+
+    @ManagedMetric(category="database", displayName="Timed out connection requests", metricType=MetricType.COUNTER, unit="request")
+    public long getConnectionTimeouts() {
+        return connectionPoolMetrics.getTimeouts();
+    }
+
+    @ManagedOperation(description="Returns performance metrics (JSON strings) in milliseconds for all instrumented operations, including p50, p95 and p99 percentiles")
     public String[] getPerformanceMetricsAsJSON() {
-        final Collection<HistoryTimer> c = timerMap.values();
-        final String[] list = new String[c.size()];
-        int i = 0;
-        for (final HistoryTimer t : c) {
-            t.recalc();
-            list[i++] = t.toString();
+        final List<String> list = new ArrayList<String>();
+        for (final Histogram h : metrics.histograms()) {
+            list.add(h.toString());
         }
-        return list;
+        return list.toArray(new String[list.size()]);
     }
 
     @ManagedOperation(description="Clears sampled performance metrics (timed statistics)")
     public void clearPerformanceMetrics() {
-        timerMap.clear();
+        metrics.clear();
+    }
+
+    // registry of timed statistics, also used by other instrumentation in this package
+    static MetricsRegistry getMetricsRegistry() {
+        return metrics;
+    }
+
+    //
+    private Statistics getStatistics() {
+        return ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+    }
+    
+    @ManagedMetric(category="cache", displayName="Second-level cache hits", metricType=MetricType.COUNTER, unit="hit")
+    public long getCacheHitCount() {
+        return getStatistics().getSecondLevelCacheHitCount();
+    }
+
+    @ManagedMetric(category="cache", displayName="Second-level cache misses", metricType=MetricType.COUNTER, unit="miss")
+    public long getCacheMissCount() {
+        return getStatistics().getSecondLevelCacheMissCount();
+    }
+
+    @ManagedMetric(category="cache", displayName="Second-level cache puts", metricType=MetricType.COUNTER, unit="put")
+    public long getCachePutCount() {
+        return getStatistics().getSecondLevelCachePutCount();
+    }
+
+    @ManagedMetric(category="cache", displayName="Query cache hits", metricType=MetricType.COUNTER, unit="hit")
+    public long getQueryCacheHitCount() {
+        return getStatistics().getQueryCacheHitCount();
+    }
+
+    @ManagedMetric(category="cache", displayName="Query cache misses", metricType=MetricType.COUNTER, unit="miss")
+    public long getQueryCacheMissCount() {
+        return getStatistics().getQueryCacheMissCount();
+    }
+    
+    @ManagedOperation(description="Returns second-level cache statistics (JSON strings) for all cache regions")
+    public String[] getCacheStatisticsAsJSON() {
+        final Statistics statistics = getStatistics();
+        final String[] names = statistics.getSecondLevelCacheRegionNames();
+        final String[] list = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final SecondLevelCacheStatistics s = statistics.getSecondLevelCacheStatistics(names[i]);
+            list[i] = String.format("{ name: \"%s\", hits: %d, misses: %d, puts: %d, elements: %d }", 
+                    names[i], s.getHitCount(), s.getMissCount(), s.getPutCount(), s.getElementCountInMemory());
+        }
+        return list;
+    }
+
+    @ManagedOperation(description="Clears cache statistics (counters)")
+    public void clearCacheStatistics() {
+        getStatistics().clear();
+    }
+    
+    @ManagedOperation(description="Evicts all entries from the second-level cache")
+    public void evictCache() {
+        entityManagerFactory.getCache().evictAll();
     }
 
     @ManagedAttribute(description="Sets the length of request history for timed statistics", defaultValue="1000")
     public void setHistoryLength(@ManagedOperationParameter(name="historyLength", description="Indicates history of requests to keep/calculate averge timed statistcis") int historyLength) {
         if (historyLength > 0) {
-            this.historyLength = historyLength;
+            metrics.setHistoryLength(historyLength);
         }
     }
 
     @ManagedAttribute(description="Returns the length of request history for timed statistics")
     public int getHistoryLength() {
-        return historyLength;
+        return metrics.getHistoryLength();
     }
 
 
     @ManagedOperation(description="Returns active service contract names, i.e. WSDL operations that have been accessed since last startup")
     public String[] getServiceNames() {
-        final Set<String> set = timerMap.keySet();
+        final Set<String> set = metrics.names();
         return set.toArray(new String[set.size()]);
     }
 
@@ -169,24 +251,25 @@ public class StatusBean {
 
     //
     public void start(final String path) {
-        if (samples.get().size() == 0) {
+        final Deque<Sample> stack = samples.get();
+        final Sample parent = stack.peek();
+        if (parent == null) {
             concurrency.inc();
         }
-        samples.get().push(new Sample(path));
+        stack.push(new Sample(path, (parent == null) ? RequestId.next() : parent.getGUID()));
+    }
+
+    // records a time (nanoseconds) not measured by start and stop, e.g. time spent in a queue
+    public void record(final String path, final long nanos) {
+        metrics.record(path, nanos);
     }
 
     //
     public void stop() {
-        final Sample sample = samples.get().pop();
-        final String name = sample.getName();
-        final long elapsed = sample.elapsed();
-        HistoryTimer timer = timerMap.get(name);
-        if (timer == null) {
-            timer = new HistoryTimer(name, this.historyLength);
-            timerMap.put(name, timer);
-        }
-        timer.add(elapsed);
-        if (samples.get().size() == 0) {
+        final Deque<Sample> stack = samples.get();
+        final Sample sample = stack.pop();
+        metrics.record(sample.getName(), sample.elapsed());
+        if (stack.isEmpty()) {
             concurrency.dec();
         }
     }
@@ -201,10 +284,10 @@ public class StatusBean {
         private String guid;
 
         //
-        public Sample(final String name) {
-            this.timestamp = System.currentTimeMillis();
+        public Sample(final String name, final String guid) {
+            this.timestamp = System.nanoTime();
             this.name = name;
-            this.guid = UUID.randomUUID().toString();
+            this.guid = guid;
         }
         
         //
@@ -217,33 +300,46 @@ public class StatusBean {
             return name;
         }
 
-        //
+        // nanoseconds
         public long elapsed() {
-            final long time = (System.currentTimeMillis() - timestamp);
+            final long time = (System.nanoTime() - timestamp);
             return (time < 0) ? 0 : time;
         }
     }
+    
+    /**
+     * Cheap request ids, i.e. a random node prefix and a sequence number (no secure random).
+     */
+    static class RequestId {
+        private static final String prefix = String.format("%08x", new Random().nextInt());
+        private static final AtomicLong seq = new AtomicLong();
+        
+        //
+        static String next() {
+            return prefix + "-" + Long.toHexString(seq.incrementAndGet());
+        }
+    }
   
     //
     static class Concurrency {
-        private long activeRequests;
-        private long totalRequests;
+        private final AtomicLong activeRequests = new AtomicLong();
+        private final AtomicLong totalRequests = new AtomicLong();
 
-        public synchronized void inc() {
-            activeRequests++;
-            totalRequests++;
+        public void inc() {
+            activeRequests.incrementAndGet();
+            totalRequests.incrementAndGet();
         }
 
-        public synchronized void dec() {
-            activeRequests--;
+        public void dec() {
+            activeRequests.decrementAndGet();
         }
 
-        public synchronized long getActiveRequests() {
-            return activeRequests;
+        public long getActiveRequests() {
+            return activeRequests.get();
         }
         
-        public synchronized long getTotalRequests() {
-            return totalRequests;
+        public long getTotalRequests() {
+            return totalRequests.get();
         }
 
     }    
@@ -34,7 +34,6 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -45,7 +44,11 @@ import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Business event information.
@@ -55,22 +58,31 @@ import org.hibernate.annotations.Index;
 @Entity(name=BusinessEventEntity.TABLE_NAME)
 @javax.persistence.Table(name = BusinessEventEntity.TABLE_NAME)
 @org.hibernate.annotations.Table(appliesTo=BusinessEventEntity.TABLE_NAME, indexes = { 
-@Index(name=BusinessEventEntity.INDEX_NAME_1, columnNames = { BusinessEventEntity.SUPPLIER_ID, BusinessEventEntity.PENDING } ),
+@Index(name=BusinessEventEntity.INDEX_NAME_1, columnNames = { BusinessEventEntity.SUPPLIER_ID, BusinessEventEntity.PENDING, BusinessEventEntity.START_TIME } ),
 @Index(name=BusinessEventEntity.INDEX_NAME_2, columnNames = { BusinessEventEntity.EVENT_ID }),
-@Index(name=BusinessEventEntity.INDEX_NAME_3, columnNames = { BusinessEventEntity.ACKNOWLEDGEMENT_ID }) })
+@Index(name=BusinessEventEntity.INDEX_NAME_3, columnNames = { BusinessEventEntity.ACKNOWLEDGEMENT_ID }),
+@Index(name=BusinessEventEntity.INDEX_NAME_4, columnNames = { BusinessEventEntity.SUPPLIER_ID, BusinessEventEntity.PENDING, BusinessEventEntity.PAYMENT_RESPONSIBLE, BusinessEventEntity.START_TIME }) })
 
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.Event")
 public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
     static final String TABLE_NAME = "invoice_data_event";
     static final String INDEX_NAME_1 = "invoice_data_event_query_ix_1";
     static final String INDEX_NAME_2 = "invoice_data_event_query_ix_2";
     static final String INDEX_NAME_3 = "invoice_data_event_query_ix_3";
+    static final String INDEX_NAME_4 = "invoice_data_event_query_ix_4";
     static final String SUPPLIER_ID = "supplier_id";
     static final String PENDING = "pending";
     static final String EVENT_ID = "event_id";
     static final String ACKNOWLEDGEMENT_ID = "acknowledgement_id";
+    static final String PAYMENT_RESPONSIBLE = "payment_responsible";
+    static final String START_TIME = "start_time";
     
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(generator="event_id_generator")
+    @GenericGenerator(name="event_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+            @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+            @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_event"),
+            @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
     private Long id;
     
     @Column(name=EVENT_ID, nullable=false, updatable=false, length=64)
@@ -107,7 +119,7 @@ public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
     @Column(name="acknowledged_by", length=64, nullable=false, updatable=false)
     private String acknowledgedBy;
     
-    @Column(name="payment_responsible", length=64, nullable=false, updatable=false)
+    @Column(name=PAYMENT_RESPONSIBLE, length=64, nullable=false, updatable=false)
     private String paymentResponsible;
     
     @Column(name="healthcare_commission", length=64, nullable=false, updatable=false)
@@ -118,16 +130,18 @@ public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
     private Date acknowledgedTime;
 
     @Temporal(TemporalType.TIMESTAMP)
-    @Column(name = "start_time", nullable=false, updatable=false)
+    @Column(name = START_TIME, nullable=false, updatable=false)
     private Date startTime;
 
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "end_time", nullable=false, updatable=false)
     private Date endTime;
     
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.Event.items")
     @OneToMany(fetch=FetchType.LAZY, mappedBy="event", orphanRemoval=true, cascade=CascadeType.ALL)    
     private List<ItemEntity> itemEntities = new LinkedList<ItemEntity>();
     
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.Event.discountItems")
     @OneToMany(fetch=FetchType.LAZY, mappedBy="event", orphanRemoval=true, cascade=CascadeType.ALL)    
     private List<DiscountItemEntity> discountItemEntities = new LinkedList<DiscountItemEntity>();
 
@@ -142,9 +156,25 @@ public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
     @Column(name=PENDING, nullable=true, updatable=true)
     private Boolean pending;
 
+    /** Derived field, calculated from items and discount items when the event is registered. 
+     * 
+     * Stored unrounded with the same scale as discount item amounts, see {@link #getTotalAmount()}. 
+     * Null for events registered before the column was introduced, until {@link #updateTotalAmount()} has been invoked.
+     */
+    @Column(name="total_amount", precision=14, scale=4, nullable=true, updatable=true)
+    private BigDecimal totalAmount;
+
+    /** Canonical content hash of the registered event, enables identical re-registrations to be detected. 
+     * 
+     * Null for events registered before the column was introduced.
+     */
+    @Column(name="content_hash", length=64, nullable=true, updatable=false)
+    private String contentHash;
+
     @PrePersist
     void onPrePerist() {
         updatePending();
+        updateTotalAmount();
         setCreatedTimestamp(new Date());
     }
     
@@ -383,11 +413,39 @@ public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
     }
  
     /**
-     * Returns the total amount for all items.
+     * Returns the total amount for all items. <p>
+     * 
+     * The stored value is used for registered events, i.e. items and discount items are 
+     * not loaded. The amount is rounded to 2 decimals in both cases, i.e. an unsaved event 
+     * and the same event reloaded from database returns the same value.
      * 
      * @return the total amount for all items.
      */
     public BigDecimal getTotalAmount() {
+        final BigDecimal amount = (totalAmount == null) ? calcTotalAmount() : totalAmount;
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Calculates and stores the total amount of this event and its discount items (derived values).
+     */
+    public void updateTotalAmount() {
+        for (final DiscountItemEntity discountItemEntity : discountItemEntities) {
+            discountItemEntity.updateTotalAmount();
+        }
+        this.totalAmount = calcTotalAmount();
+    }
+
+    //
+    private BigDecimal calcTotalAmount() {
         BigDecimal amount = BigDecimal.valueOf(0.0);
         
         for (final ItemEntity itemEntity : itemEntities) {
@@ -398,7 +456,7 @@ public class BusinessEventEntity implements Comparable<BusinessEventEntity> {
         for (final DiscountItemEntity discountItemEntity : discountItemSet) {
         	amount = amount.subtract(discountItemEntity.getTotalAmount());
         }        
-        amount = amount.setScale(2, RoundingMode.HALF_UP);
+        amount = amount.setScale(4, RoundingMode.HALF_UP);
         return amount;
     }
 
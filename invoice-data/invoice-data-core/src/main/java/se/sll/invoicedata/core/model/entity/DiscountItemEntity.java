@@ -23,17 +23,14 @@
 package se.sll.invoicedata.core.model.entity;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -41,6 +38,10 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * @author muqkha
@@ -48,10 +49,15 @@ import org.apache.commons.lang.builder.ToStringBuilder;
  */
 @Entity
 @Table(name = "invoice_data_event_discount_item")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.DiscountItem")
 public class DiscountItemEntity implements Comparable<DiscountItemEntity> {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator="event_discount_item_id_generator")
+	@GenericGenerator(name="event_discount_item_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+	        @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+	        @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_event_discount_item"),
+	        @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
 	private Long id;
 	
 	@Column(name="description", length=256, nullable=false, updatable=false)
@@ -67,7 +73,12 @@ public class DiscountItemEntity implements Comparable<DiscountItemEntity> {
     @JoinColumn(name="event_id", updatable=false)
     private BusinessEventEntity event;
     
-    @OneToMany(fetch=FetchType.EAGER, mappedBy="discountItemEntity", orphanRemoval=true, cascade=CascadeType.ALL)    
+    /** Derived field, see {@link BusinessEventEntity#updateTotalAmount()}. */
+    @Column(name="total_amount", precision=14, scale=4, nullable=true, updatable=true)
+    private BigDecimal totalAmount;
+    
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.DiscountItem.referenceItems")
+    @OneToMany(fetch=FetchType.LAZY, mappedBy="discountItemEntity", orphanRemoval=true, cascade=CascadeType.ALL)    
     private List<ReferenceItemEntity> referenceItemEntities = new LinkedList<ReferenceItemEntity>();
     
 	public Long getId() {
@@ -127,25 +138,44 @@ public class DiscountItemEntity implements Comparable<DiscountItemEntity> {
         return false;
     }
 	
+	/**
+	 * Returns the discount amount, the stored value if the event has been registered.
+	 * 
+	 * @return the discount amount.
+	 */
 	public BigDecimal getTotalAmount() {
+		return (totalAmount == null) ? calcTotalAmount() : totalAmount;
+	}
+	
+	//
+	void updateTotalAmount() {
+		this.totalAmount = calcTotalAmount();
+	}
+	
+	//
+	private BigDecimal calcTotalAmount() {
 		BigDecimal amount = BigDecimal.valueOf(0.0);		
-		Map<String, ItemEntity> serviceItemMap = new HashMap<String, ItemEntity>();
-        
-        for (final ItemEntity itemEntity : event.getItemEntities()) {
-       		serviceItemMap.put(itemEntity.getItemId(), itemEntity);
-        }
-        
+		
 		for (ReferenceItemEntity referenceItemEntity : getReferenceItemEntities()) {
-    		ItemEntity itemEntity = serviceItemMap.get(referenceItemEntity.getRefItemId());
+    		ItemEntity itemEntity = findItem(referenceItemEntity.getRefItemId());
     		BigDecimal priceBeforeDiscount = itemEntity.getPrice().multiply(new BigDecimal(referenceItemEntity.getQty()));
     		BigDecimal priceAfterDiscount = (priceBeforeDiscount.multiply(new BigDecimal(this.getDiscountInPercentage()))).divide(new BigDecimal(100));
     		amount = amount.add(priceAfterDiscount);
     	}
 		
-		serviceItemMap.clear();
 		return amount;
 	}
 	
+	// few items per event, i.e. a linear search is cheaper than building a map
+	private ItemEntity findItem(final String itemId) {
+		for (final ItemEntity itemEntity : event.getItemEntities()) {
+			if (itemEntity.getItemId().equals(itemId)) {
+				return itemEntity;
+			}
+		}
+		return null;
+	}
+	
 	@Override
     public boolean equals(Object r) {
         if (this == r) {
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.entity;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.type.Type;
+
+/**
+ * Identity generator shared by entities, i.e. a pooled table generator with one 
+ * segment (row) per entity table. <p>
+ * 
+ * Ids are allocated in blocks, i.e. without a database round-trip per insert, which also 
+ * enables JDBC batching of inserts (not possible with identity columns). <p>
+ * 
+ * The allocation size (block) is the same for all entities and shall not be less than the 
+ * JDBC batch size (database.batch-size). Hibernate doesn't pass configuration properties to identity 
+ * generators, i.e. the size (database.id-allocation-size) is set by {@link #setAllocationSize(int)} 
+ * before the entity manager factory is created. The generator rows seeded by Update_1.5.sql start one 
+ * block above current max ids, and the script shall be run with the same size.
+ * 
+ * @author Peter
+ *
+ */
+public class IdGenerator extends TableGenerator {
+    static final String STRATEGY = "se.sll.invoicedata.core.model.entity.IdGenerator";
+    static final String TABLE_PARAM = "table_name";
+    static final String SEGMENT_VALUE_PARAM = "segment_value";
+    static final String OPTIMIZER_PARAM = "optimizer";
+
+    static final String TABLE_NAME = "invoice_data_sequence";
+    static final String OPTIMIZER = "pooled";
+
+    static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private static volatile int allocationSize = DEFAULT_ALLOCATION_SIZE;
+
+    /**
+     * Sets the allocation size of all entities, takes effect for generators configured from now on.
+     * 
+     * @param size the allocation size, must be positive.
+     */
+    public static void setAllocationSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("id allocation size must be positive: " + size);
+        }
+        allocationSize = size;
+    }
+
+    @Override
+    public void configure(final Type type, final Properties params, final Dialect dialect) throws MappingException {
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        super.configure(type, params, dialect);
+    }
+}
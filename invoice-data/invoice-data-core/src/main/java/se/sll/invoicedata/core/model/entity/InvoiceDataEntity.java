@@ -30,15 +30,18 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.PrePersist;
-import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Persistent invoice data information.
@@ -46,16 +49,32 @@ import org.apache.commons.lang.builder.ToStringBuilder;
  * @author Peter
  */
 @Entity
-@Table(name="invoice_data")
+@javax.persistence.Table(name=InvoiceDataEntity.TABLE_NAME)
+@org.hibernate.annotations.Table(appliesTo=InvoiceDataEntity.TABLE_NAME, indexes = { 
+@Index(name=InvoiceDataEntity.INDEX_NAME_1, columnNames = { InvoiceDataEntity.SUPPLIER_ID, InvoiceDataEntity.START_DATE, InvoiceDataEntity.END_DATE }),
+@Index(name=InvoiceDataEntity.INDEX_NAME_2, columnNames = { InvoiceDataEntity.PAYMENT_RESPONSIBLE, InvoiceDataEntity.START_DATE, InvoiceDataEntity.END_DATE }) })
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.InvoiceData")
 public class InvoiceDataEntity {
+    static final String TABLE_NAME = "invoice_data";
+    static final String INDEX_NAME_1 = "invoice_data_query_ix_1";
+    static final String INDEX_NAME_2 = "invoice_data_query_ix_2";
+    static final String SUPPLIER_ID = "supplier_id";
+    static final String PAYMENT_RESPONSIBLE = "payment_responsible";
+    static final String START_DATE = "start_date";
+    static final String END_DATE = "end_date";
+    
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(generator="invoice_data_id_generator")
+    @GenericGenerator(name="invoice_data_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+            @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+            @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data"),
+            @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
     private Long id;
 
-    @Column(name="supplier_id", length=64, nullable=false, updatable=false)
+    @Column(name=SUPPLIER_ID, length=64, nullable=false, updatable=false)
     private String supplierId;
 
-    @Column(name="payment_responsible", length=64, nullable=false, updatable=false)
+    @Column(name=PAYMENT_RESPONSIBLE, length=64, nullable=false, updatable=false)
     private String paymentResponsible;
 
     @Column(name="created_by", length=64, nullable=false, updatable=false)
@@ -66,16 +85,17 @@ public class InvoiceDataEntity {
     private Date createdTime;
 
     @Temporal(TemporalType.DATE)
-    @Column(name = "start_date", nullable=false, updatable=false)
+    @Column(name = START_DATE, nullable=false, updatable=false)
     private Date startDate;
 
     @Temporal(TemporalType.DATE)
-    @Column(name = "end_date", nullable=false, updatable=false)
+    @Column(name = END_DATE, nullable=false, updatable=false)
     private Date endDate;
 
     @Column(name="total_amount", precision=12, scale=2, updatable=false)
     private BigDecimal totalAmount;
 
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.InvoiceData.events")
     @OneToMany(fetch=FetchType.LAZY, mappedBy="invoiceData", orphanRemoval=false, cascade=CascadeType.ALL)    
     private List<BusinessEventEntity> businessEventEntities = new LinkedList<BusinessEventEntity>();
 
@@ -119,6 +139,22 @@ public class InvoiceDataEntity {
         setTotalAmount(amount);
     }
 
+    /**
+     * Sets derived property values calculated elsewhere, i.e. when events are assigned to this invoice data 
+     * by a set-based update and never added to the event list. <p>
+     * 
+     * Values set are kept when persisting invoice data without any added events.
+     * 
+     * @param startDate the start date, i.e. the earliest event start time.
+     * @param endDate the end date, i.e. the latest event end time.
+     * @param totalAmount the total amount for all events.
+     */
+    public void setDerivedValues(final Date startDate, final Date endDate, final BigDecimal totalAmount) {
+        setStartDate(startDate);
+        setEndDate(endDate);
+        setTotalAmount(totalAmount);
+    }
+
     public Long getId() {
         return id;
     }
@@ -24,20 +24,28 @@ import java.math.BigDecimal;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
 @Table(name="invoice_data_event_item")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.Item")
 public class ItemEntity {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(generator="event_item_id_generator")
+    @GenericGenerator(name="event_item_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+            @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+            @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_event_item"),
+            @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
     private Long id;
 
     @Column(name="item_id", length=64, nullable=false, updatable=false)
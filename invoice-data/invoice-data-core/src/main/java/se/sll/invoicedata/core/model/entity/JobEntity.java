@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+
+/**
+ * State of an asynchronous create invoice data job, i.e. visible to all application nodes. <p>
+ * 
+ * The owner is the node running the job, and a job not finished by its owner is lost. Updates are 
+ * versioned, i.e. the worker and a poller marking the job as lost never overwrite each other silently.
+ * 
+ * @author Peter
+ */
+@Entity
+@Table(name = JobEntity.TABLE_NAME)
+public class JobEntity {
+
+    public static final String TABLE_NAME = "invoice_data_job";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String LOST = "LOST";
+
+    // max length of stored error messages
+    static final int ERROR_MESSAGE_LENGTH = 1024;
+
+    @Id
+    @Column(name="job_id", length=64, nullable=false, updatable=false)
+    private String jobId;
+
+    @Column(name="supplier_id", length=64, nullable=false, updatable=false)
+    private String supplierId;
+
+    @Column(name="owner", length=64, nullable=false, updatable=false)
+    private String owner;
+
+    @Column(name="status", length=16, nullable=false)
+    private String status;
+
+    @Column(name="reference_id", length=64, nullable=true)
+    private String referenceId;
+
+    @Column(name="error_code", length=64, nullable=true)
+    private String errorCode;
+
+    @Column(name="error_message", length=ERROR_MESSAGE_LENGTH, nullable=true)
+    private String errorMessage;
+
+    @Column(name="submitted_time", nullable=false, updatable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date submittedTime;
+
+    @Column(name="started_time", nullable=true)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startedTime;
+
+    @Column(name="finished_time", nullable=true)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date finishedTime;
+
+    @Version
+    @Column(name="version", nullable=false)
+    private int version;
+
+    protected JobEntity() {
+    }
+
+    public JobEntity(final String jobId, final String supplierId, final String owner) {
+        this.jobId = jobId;
+        this.supplierId = supplierId;
+        this.owner = owner;
+        this.status = QUEUED;
+        this.submittedTime = new Date();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public Date getSubmittedTime() {
+        return submittedTime;
+    }
+
+    public Date getStartedTime() {
+        return startedTime;
+    }
+
+    public Date getFinishedTime() {
+        return finishedTime;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isFinished() {
+        return (finishedTime != null);
+    }
+
+    //
+    public void started() {
+        this.startedTime = new Date();
+        this.status = RUNNING;
+    }
+
+    //
+    public void completed(final String referenceId) {
+        this.referenceId = referenceId;
+        finished(COMPLETED);
+    }
+
+    //
+    public void failed(final String errorCode, final String errorMessage) {
+        this.errorCode = errorCode;
+        this.errorMessage = (errorMessage != null && errorMessage.length() > ERROR_MESSAGE_LENGTH) 
+                ? errorMessage.substring(0, ERROR_MESSAGE_LENGTH) : errorMessage;
+        finished(FAILED);
+    }
+
+    //
+    public void lost() {
+        finished(LOST);
+    }
+
+    //
+    private void finished(final String status) {
+        this.finishedTime = new Date();
+        this.status = status;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * A named lock shared by all application nodes, i.e. the lock is held as long as the row exists. <p>
+ * 
+ * The primary key (name) guarantees that only one node at a time is able to insert a lock.
+ * 
+ * @author Peter
+ */
+@Entity
+@Table(name = LockEntity.TABLE_NAME)
+public class LockEntity {
+    
+    public static final String TABLE_NAME = "invoice_data_lock";
+
+    @Id
+    @Column(name="name", length=255, nullable=false, updatable=false)
+    private String name;
+    
+    @Column(name="owner", length=64, nullable=false, updatable=false)
+    private String owner;
+    
+    // created, or last renewed by the owner
+    @Column(name="created_timestamp", nullable=false, updatable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdTimestamp;
+
+    protected LockEntity() {
+    }
+    
+    public LockEntity(final String name, final String owner) {
+        this.name = name;
+        this.owner = owner;
+        this.createdTimestamp = new Date();
+    }
+    
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Date getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+}
@@ -24,19 +24,27 @@ import java.math.BigDecimal;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.Parameter;
 
 @Entity(name="invoice_data_pricelist_item")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.Price")
 public class PriceEntity {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(generator="pricelist_item_id_generator")
+    @GenericGenerator(name="pricelist_item_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+            @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+            @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_pricelist_item"),
+            @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
     private Long id;
 
     @NaturalId
@@ -29,21 +29,29 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.Parameter;
 
 
 @Entity(name="invoice_data_pricelist")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.PriceList")
 public class PriceListEntity {
     
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(generator="pricelist_id_generator")
+    @GenericGenerator(name="pricelist_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+            @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+            @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_pricelist"),
+            @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
     private Long id;
 
     @NaturalId(mutable=false)
@@ -63,6 +71,7 @@ public class PriceListEntity {
     private String supplierName;
 
 
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.PriceList.prices")
     @OneToMany(fetch=FetchType.EAGER, mappedBy="priceList", orphanRemoval=true, cascade=CascadeType.ALL)    
     private List<PriceEntity> priceEntities = new LinkedList<PriceEntity>();
 
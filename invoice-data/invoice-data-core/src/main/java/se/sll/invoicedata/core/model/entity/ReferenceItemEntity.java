@@ -25,13 +25,16 @@ package se.sll.invoicedata.core.model.entity;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * @author muqkha
@@ -39,10 +42,15 @@ import org.apache.commons.lang.builder.ToStringBuilder;
  */
 @Entity
 @Table(name = "invoice_data_event_reference_item")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="invoicedata.ReferenceItem")
 public class ReferenceItemEntity {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator="event_reference_item_id_generator")
+	@GenericGenerator(name="event_reference_item_id_generator", strategy=IdGenerator.STRATEGY, parameters = {
+	        @Parameter(name=IdGenerator.TABLE_PARAM, value=IdGenerator.TABLE_NAME),
+	        @Parameter(name=IdGenerator.SEGMENT_VALUE_PARAM, value="invoice_data_event_reference_item"),
+	        @Parameter(name=IdGenerator.OPTIMIZER_PARAM, value=IdGenerator.OPTIMIZER) })
 	private Long id;
 	
 	@Column(name="reference_item_id", nullable=false, updatable=false)
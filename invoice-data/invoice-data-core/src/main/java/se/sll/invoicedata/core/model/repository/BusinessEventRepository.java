@@ -24,8 +24,11 @@ import java.util.List;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
 
 /**
  * Business event repository functions.
@@ -65,6 +68,59 @@ public interface BusinessEventRepository extends JpaRepository<BusinessEventEnti
      */
     BusinessEventEntity findByEventIdAndPendingIsNullAndCreditedIsNullAndCreditIsNull(String eventId);
 
+    /**
+     * Returns pending, non-credit events matching a list of event ids. <p>
+     * 
+     * Batch variant of {@link #findByEventIdAndPendingIsTrueAndCreditIsNull(String)}.
+     * 
+     * @param eventIdList the list of event ids.
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    List<BusinessEventEntity> findByEventIdInAndPendingIsTrueAndCreditIsNull(List<String> eventIdList);
+
+    /**
+     * Returns non-pending, non-credit, non-credited events matching a list of event ids. <p>
+     * 
+     * Batch variant of {@link #findByEventIdAndPendingIsNullAndCreditedIsNullAndCreditIsNull(String)}.
+     * 
+     * @param eventIdList the list of event ids.
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    List<BusinessEventEntity> findByEventIdInAndPendingIsNullAndCreditedIsNullAndCreditIsNull(List<String> eventIdList);
+
+    /**
+     * Returns events affected by a registration of new events, i.e. both pending, non-credit events 
+     * (to be replaced) and non-pending, non-credit, non-credited events (to be credited) 
+     * matching a list of event ids. <p>
+     * 
+     * Combines {@link #findByEventIdInAndPendingIsTrueAndCreditIsNull(List)} and 
+     * {@link #findByEventIdInAndPendingIsNullAndCreditedIsNullAndCreditIsNull(List)} in one query.
+     * 
+     * @param eventIdList the list of event ids.
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    @Query("SELECT e FROM invoice_data_event e WHERE e.eventId IN :eventIds AND e.credit IS NULL "
+            + "AND (e.pending = true OR (e.pending IS NULL AND e.credited IS NULL))")
+    List<BusinessEventEntity> findRegistrationCandidatesByEventIdIn(@Param("eventIds") List<String> eventIdList);
+
+    /**
+     * Returns the max event id (primary key).
+     * 
+     * @return the max id, or null if no events exists.
+     */
+    @Query("SELECT MAX(e.id) FROM invoice_data_event e")
+    Long findMaxId();
+
+    /**
+     * Returns event ids (business keys) of events within a range of primary keys.
+     * 
+     * @param fromId the lower primary key bound (exclusive).
+     * @param toId the upper primary key bound (inclusive).
+     * @return the list of event ids, might be empty.
+     */
+    @Query("SELECT e.eventId FROM invoice_data_event e WHERE e.id > :fromId AND e.id <= :toId")
+    List<String> findEventIdsByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
     /**
      * Returns all pending events for a particular supplier.
      * 
@@ -90,6 +146,37 @@ public interface BusinessEventRepository extends JpaRepository<BusinessEventEnti
      * @return the list of matching events, might be empty when none matches the acknowledgementId.
      */
     List<BusinessEventEntity> findByAcknowledgementIdInAndPendingIsTrue(List<String> acknowledgementId);
+
+    /**
+     * Returns pending entities without a stored total amount matching a list of acknowledgment identities.
+     * 
+     * @param acknowledgementId the list of acknowledgment identities.
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    List<BusinessEventEntity> findByAcknowledgementIdInAndPendingIsTrueAndTotalAmountIsNull(List<String> acknowledgementId);
+
+    /**
+     * Returns aggregated values of pending entities matching a list of acknowledgment identities, 
+     * grouped by supplier, payment responsible and credit flag.
+     * 
+     * @param ids the list of acknowledgment identities.
+     * @return the aggregated values, might be empty when none matches the criteria.
+     */
+    @Query("SELECT new se.sll.invoicedata.core.model.repository.EventAggregateRow(e.supplierId, e.paymentResponsible, e.credit, "
+            + "COUNT(e), COUNT(e.totalAmount), MIN(e.startTime), MAX(e.endTime), SUM(CAST(ROUND(e.totalAmount, 2) AS big_decimal))) "
+            + "FROM invoice_data_event e WHERE e.acknowledgementId IN :ids AND e.pending = true "
+            + "GROUP BY e.supplierId, e.paymentResponsible, e.credit")
+    List<EventAggregateRow> aggregatePendingByAcknowledgementIdIn(@Param("ids") List<String> ids);
+
+    /**
+     * Returns the ids of pending entities matching a list of acknowledgment identities, i.e. 
+     * without loading the events.
+     * 
+     * @param ids the list of acknowledgment identities.
+     * @return the list of event ids, might be empty.
+     */
+    @Query("SELECT e.id FROM invoice_data_event e WHERE e.acknowledgementId IN :ids AND e.pending = true")
+    List<Long> findIdByAcknowledgementIdInAndPendingIsTrue(@Param("ids") List<String> ids);
     
     /**
      * Returns entities for a supplier and where start time is within a period of time.
@@ -116,4 +203,91 @@ public interface BusinessEventRepository extends JpaRepository<BusinessEventEnti
      */
     List<BusinessEventEntity> findBySupplierIdAndPendingIsTrueAndPaymentResponsibleAndStartTimeBetween(String supplierId, String paymentResponsible, Date startTime, Date endTime, Pageable pageable);
     
+    /**
+     * Returns pending entities for a supplier ordered by start time and id, and positioned after a key (keyset paging). <p>
+     * 
+     * The first page is fetched with the period start time as key start time, and a key id less than any id.
+     * 
+     * @param supplierId the supplier id.
+     * @param keyStartTime the start time of the key, i.e. the last entity of the previous page.
+     * @param keyId the id of the key.
+     * @param endTime the period end time.
+     * @param pageable page info, the page number shall always be 0.
+     * 
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    @Query("FROM invoice_data_event e WHERE e.supplierId = :supplierId AND e.pending = true "
+            + "AND e.startTime <= :endTime AND (e.startTime > :keyStartTime OR (e.startTime = :keyStartTime AND e.id > :keyId)) "
+            + "ORDER BY e.startTime, e.id")
+    List<BusinessEventEntity> findPendingBySupplierIdAfterKey(@Param("supplierId") String supplierId, 
+            @Param("keyStartTime") Date keyStartTime, @Param("keyId") Long keyId, 
+            @Param("endTime") Date endTime, Pageable pageable);
+
+    /**
+     * Returns pending entities for a supplier and payment responsible ordered by start time and id, 
+     * and positioned after a key (keyset paging).
+     * 
+     * @see #findPendingBySupplierIdAfterKey(String, Date, Long, Date, Pageable)
+     * 
+     * @param supplierId the supplier id.
+     * @param paymentResponsible the payment responsible.
+     * @param keyStartTime the start time of the key, i.e. the last entity of the previous page.
+     * @param keyId the id of the key.
+     * @param endTime the period end time.
+     * @param pageable page info, the page number shall always be 0.
+     * 
+     * @return the list of matching events, might be empty when none matches the criteria.
+     */
+    @Query("FROM invoice_data_event e WHERE e.supplierId = :supplierId AND e.pending = true AND e.paymentResponsible = :paymentResponsible "
+            + "AND e.startTime <= :endTime AND (e.startTime > :keyStartTime OR (e.startTime = :keyStartTime AND e.id > :keyId)) "
+            + "ORDER BY e.startTime, e.id")
+    List<BusinessEventEntity> findPendingBySupplierIdAndPaymentResponsibleAfterKey(@Param("supplierId") String supplierId, 
+            @Param("paymentResponsible") String paymentResponsible, 
+            @Param("keyStartTime") Date keyStartTime, @Param("keyId") Long keyId, 
+            @Param("endTime") Date endTime, Pageable pageable);
+
+    /**
+     * Fetches items of events, i.e. initializes the item collection of the events in one query. <p>
+     * 
+     * Items, discount items and reference items are fetched by separate queries, since 
+     * fetching several collections in the same query yields a cartesian product.
+     * 
+     * @param ids the event ids.
+     * @return the events.
+     */
+    @Query("SELECT DISTINCT e FROM invoice_data_event e LEFT JOIN FETCH e.itemEntities WHERE e.id IN :ids")
+    List<BusinessEventEntity> fetchItemEntities(@Param("ids") List<Long> ids);
+
+    /**
+     * Fetches discount items of events, i.e. initializes the discount item collection of the events in one query.
+     * 
+     * @see #fetchItemEntities(List)
+     * 
+     * @param ids the event ids.
+     * @return the events.
+     */
+    @Query("SELECT DISTINCT e FROM invoice_data_event e LEFT JOIN FETCH e.discountItemEntities WHERE e.id IN :ids")
+    List<BusinessEventEntity> fetchDiscountItemEntities(@Param("ids") List<Long> ids);
+
+    /**
+     * Fetches reference items of the discount items of events, i.e. initializes the reference item 
+     * collection of the discount items in one query.
+     * 
+     * @see #fetchItemEntities(List)
+     * 
+     * @param ids the event ids.
+     * @return the discount items.
+     */
+    @Query("SELECT DISTINCT d FROM DiscountItemEntity d LEFT JOIN FETCH d.referenceItemEntities WHERE d.event.id IN :ids")
+    List<DiscountItemEntity> fetchReferenceItemEntities(@Param("ids") List<Long> ids);
+
+    /**
+     * Returns ids of events without a stored total amount, i.e. events registered before 
+     * the amount was stored, ordered by id.
+     * 
+     * @param pageable the page (chunk) to return.
+     * @return the ids.
+     */
+    @Query("SELECT e.id FROM invoice_data_event e WHERE e.totalAmount IS NULL ORDER BY e.id")
+    List<Long> findIdByTotalAmountIsNull(Pageable pageable);
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Aggregated values of a group of events with the same supplier, payment responsible and credit flag, 
+ * i.e. a read-only projection of {@link se.sll.invoicedata.core.model.entity.BusinessEventEntity} selected with 
+ * a constructor expression, without loading the events.
+ * 
+ * @author Peter
+ *
+ */
+public class EventAggregateRow {
+    private final String supplierId;
+    private final String paymentResponsible;
+    private final boolean credit;
+    private final long count;
+    private final long amountCount;
+    private final Date startTime;
+    private final Date endTime;
+    private final BigDecimal totalAmount;
+
+    public EventAggregateRow(String supplierId, String paymentResponsible, Boolean credit, Long count, 
+            Long amountCount, Date startTime, Date endTime, BigDecimal totalAmount) {
+        this.supplierId = supplierId;
+        this.paymentResponsible = paymentResponsible;
+        this.credit = (credit == Boolean.TRUE);
+        this.count = (count == null) ? 0L : count;
+        this.amountCount = (amountCount == null) ? 0L : amountCount;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.totalAmount = (totalAmount == null) ? BigDecimal.ZERO : totalAmount;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public String getPaymentResponsible() {
+        return paymentResponsible;
+    }
+
+    public boolean isCredit() {
+        return credit;
+    }
+
+    /**
+     * Returns the number of events.
+     * 
+     * @return the number of events.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of events with a stored total amount.
+     * 
+     * @return the number of events with a stored total amount.
+     */
+    public long getAmountCount() {
+        return amountCount;
+    }
+
+    /**
+     * Returns the earliest start time.
+     * 
+     * @return the earliest start time.
+     */
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the latest end time.
+     * 
+     * @return the latest end time.
+     */
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the sum of stored total amounts, each rounded as by 
+     * {@link se.sll.invoicedata.core.model.entity.BusinessEventEntity#getTotalAmount()}.
+     * 
+     * @return the sum of stored total amounts.
+     */
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Invoice data header columns, i.e. a read-only projection of {@link se.sll.invoicedata.core.model.entity.InvoiceDataEntity} 
+ * selected with a constructor expression, without loading the entity or its events.
+ * 
+ * @author Peter
+ *
+ */
+public class InvoiceDataHeaderRow {
+    private final Long id;
+    private final String supplierId;
+    private final String paymentResponsible;
+    private final String createdBy;
+    private final Date createdTime;
+    private final Date startDate;
+    private final Date endDate;
+    private final BigDecimal totalAmount;
+
+    public InvoiceDataHeaderRow(Long id, String supplierId, String paymentResponsible, String createdBy, 
+            Date createdTime, Date startDate, Date endDate, BigDecimal totalAmount) {
+        this.id = id;
+        this.supplierId = supplierId;
+        this.paymentResponsible = paymentResponsible;
+        this.createdBy = createdBy;
+        this.createdTime = createdTime;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getReferenceId() {
+        return String.valueOf(id);
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public String getPaymentResponsible() {
+        return paymentResponsible;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+}
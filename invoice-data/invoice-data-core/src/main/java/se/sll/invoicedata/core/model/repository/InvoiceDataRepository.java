@@ -22,67 +22,154 @@ package se.sll.invoicedata.core.model.repository;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
 
 /**
  * Invoice data repository functions.
- * Carries out DAO operations on InvoiceDataEntity
+ * Carries out DAO operations on InvoiceDataEntity <p>
  *  
+ * The date range queries return invoice data overlapping the range, i.e. <code>startDate &lt;= toDate AND endDate &gt;= fromDate</code>,
+ * which (unlike a disjunction) can be resolved with a range scan on the composite indexes of {@link InvoiceDataEntity}.
+ * Header rows are cached in the query cache, i.e. invalidated whenever invoice data is written.
+ * 
  * @see InvoiceDataEntity
  * @author Peter 
  */
 public interface InvoiceDataRepository extends JpaRepository<InvoiceDataEntity, Long> {
+
+    /** Query hint to use the (second-level) query cache. */
+    static final String CACHEABLE = "org.hibernate.cacheable";
+    
+    static final String SELECT_HEADER_ROW = "SELECT new se.sll.invoicedata.core.model.repository.InvoiceDataHeaderRow("
+            + "i.id, i.supplierId, i.paymentResponsible, i.createdBy, i.createdTime, i.startDate, i.endDate, i.totalAmount) "
+            + "FROM InvoiceDataEntity i ";
+
+    static final String OVERLAP_AFTER_KEY = "i.startDate <= :toDate AND i.endDate >= :fromDate "
+            + "AND (i.startDate > :keyStartDate OR (i.startDate = :keyStartDate AND i.id > :keyId)) "
+            + "ORDER BY i.startDate, i.id";
     
 	/**
-	 * Returns InvoiceData with matching supplierId within date range!
-     * 
+	 * Returns header rows of invoice data with matching supplierId overlapping a date range, 
+	 * ordered by start date and positioned after a key (keyset paging).
+	 * 
 	 * @param supplierId the supplier id.
-	 * @param fromDate can be null so 1970 01 01 is set as from date
-	 * @param toDate can also be null then the max valid date i.e 31 December 9999 is set
-	 * @return List<InvoiceDataEntity> the resulting list, might be empty.
-     */
-	@Query("FROM InvoiceDataEntity WHERE supplierId = :supplierId "
-            + "AND ((startDate BETWEEN :fromDate AND :toDate) OR (endDate BETWEEN :fromDate AND :toDate))")
-	List<InvoiceDataEntity> getInvoiceDataBySupplierIdBetweenDates(@Param("supplierId") String supplierId, 
-            @Param("fromDate") Date fromDate, @Param("toDate") Date toDate);
+	 * @param fromDate the range start date.
+	 * @param toDate the range end date.
+	 * @param keyStartDate the start date of the last row of the previous page, or the range start date.
+	 * @param keyId the id of the last row of the previous page, or {@link Long#MIN_VALUE}.
+	 * @param pageable the page size, or null for all remaining rows.
+	 * @return the header rows, might be empty.
+	 */
+	@QueryHints(@QueryHint(name=CACHEABLE, value="true"))
+	@Query(SELECT_HEADER_ROW + "WHERE i.supplierId = :supplierId AND " + OVERLAP_AFTER_KEY)
+	List<InvoiceDataHeaderRow> findHeaderRowsBySupplierIdAfterKey(@Param("supplierId") String supplierId, 
+	        @Param("fromDate") Date fromDate, @Param("toDate") Date toDate, 
+	        @Param("keyStartDate") Date keyStartDate, @Param("keyId") Long keyId, Pageable pageable);
 	
 	/**
-	 * Returns InvoiceData with matching paymentResponsible within date range!
-     * 
-	 * @param paymentResponsible the payment responsible.
-	 * @param fromDate can be null so 1970 01 01 is set as from date
-	 * @param toDate can also be null then the max valid date i.e 31 December 9999 is set
-     * @return List<InvoiceDataEntity> the resulting list, might be empty.
+	 * Returns header rows of invoice data with matching paymentResponsible overlapping a date range, 
+	 * ordered by start date and positioned after a key (keyset paging).
+	 * 
+	 * @see #findHeaderRowsBySupplierIdAfterKey(String, Date, Date, Date, Long, Pageable)
 	 */
-	@Query("FROM InvoiceDataEntity WHERE paymentResponsible = :paymentResponsible "
-            + "AND ((startDate BETWEEN :fromDate AND :toDate) OR (endDate BETWEEN :fromDate AND :toDate))")
-	List<InvoiceDataEntity> getInvoiceDataByPaymentResponsibleBetweenDates(@Param("paymentResponsible") String paymentResponsible, 
-            @Param("fromDate") Date fromDate, @Param("toDate") Date toDate);
+	@QueryHints(@QueryHint(name=CACHEABLE, value="true"))
+	@Query(SELECT_HEADER_ROW + "WHERE i.paymentResponsible = :paymentResponsible AND " + OVERLAP_AFTER_KEY)
+	List<InvoiceDataHeaderRow> findHeaderRowsByPaymentResponsibleAfterKey(@Param("paymentResponsible") String paymentResponsible, 
+	        @Param("fromDate") Date fromDate, @Param("toDate") Date toDate, 
+	        @Param("keyStartDate") Date keyStartDate, @Param("keyId") Long keyId, Pageable pageable);
 
 	/**
-	 * Returns InvoiceData with matching supplierId and payment responsible within date range!
-     * 
-     * @param supplierId the supplier id.
-	 * @param paymentResponsible the payment responsible.
-	 * @param fromDate can be null so 1970 01 01 is set as from date
-	 * @param toDate can also be null then the max valid date i.e 31 December 9999 is set
-     * @return List<InvoiceDataEntity> the resulting list, might be empty.
+	 * Returns header rows of invoice data with matching supplierId and paymentResponsible overlapping a date range, 
+	 * ordered by start date and positioned after a key (keyset paging).
+	 * 
+	 * @see #findHeaderRowsBySupplierIdAfterKey(String, Date, Date, Date, Long, Pageable)
 	 */
-	@Query("FROM InvoiceDataEntity WHERE supplierId = :supplierId AND paymentResponsible = :paymentResponsible "
-            + "AND ((startDate BETWEEN :fromDate AND :toDate) OR (endDate BETWEEN :fromDate AND :toDate))")
-	List<InvoiceDataEntity> getInvoiceDataBySupplierIdAndPaymentResponsibleBetweenDates(@Param("supplierId") String supplierId,
-            @Param("paymentResponsible") String paymentResponsible, 
-            @Param("fromDate") Date fromDate, 
-            @Param("toDate") Date toDate);
+	@QueryHints(@QueryHint(name=CACHEABLE, value="true"))
+	@Query(SELECT_HEADER_ROW + "WHERE i.supplierId = :supplierId AND i.paymentResponsible = :paymentResponsible AND " + OVERLAP_AFTER_KEY)
+	List<InvoiceDataHeaderRow> findHeaderRowsBySupplierIdAndPaymentResponsibleAfterKey(@Param("supplierId") String supplierId, 
+	        @Param("paymentResponsible") String paymentResponsible, 
+	        @Param("fromDate") Date fromDate, @Param("toDate") Date toDate, 
+	        @Param("keyStartDate") Date keyStartDate, @Param("keyId") Long keyId, Pageable pageable);
 
 	/**
-	 * Returns invoice data items of a certain age.
+	 * Returns the supplier of an invoice data item without loading the item itself.
+	 * 
+	 * @param id the invoice data id.
+	 * @return the supplier id, or null if no such invoice data exists.
+	 */
+	@Query("SELECT i.supplierId FROM InvoiceDataEntity i WHERE i.id = :id")
+	String findSupplierIdById(@Param("id") Long id);
+	
+	/**
+	 * Returns ids of invoice data items of a certain age, ordered by id.
 	 * 
 	 * @param maxDate the maximum end date.
+	 * @param pageable the page (chunk) to return.
+	 * @return the ids.
+	 */
+	@Query("SELECT i.id FROM InvoiceDataEntity i WHERE i.endDate < :maxDate ORDER BY i.id")
+	List<Long> findIdByEndDateLessThan(@Param("maxDate") Date maxDate, Pageable pageable);
+
+	/**
+	 * Bulk deletes reference items of events belonging to invoice data.
+	 * 
+	 * @param ids the invoice data ids.
+	 * @return the number of deleted rows.
+	 */
+	@Modifying
+	@Query("DELETE FROM ReferenceItemEntity r WHERE r.discountItemEntity.id IN "
+			+ "(SELECT d.id FROM DiscountItemEntity d WHERE d.event.id IN "
+			+ "(SELECT e.id FROM invoice_data_event e WHERE e.invoiceData.id IN (:ids)))")
+	int deleteReferenceItemsByInvoiceDataIdIn(@Param("ids") List<Long> ids);
+
+	/**
+	 * Bulk deletes discount items of events belonging to invoice data.
+	 * 
+	 * @param ids the invoice data ids.
+	 * @return the number of deleted rows.
+	 */
+	@Modifying
+	@Query("DELETE FROM DiscountItemEntity d WHERE d.event.id IN "
+			+ "(SELECT e.id FROM invoice_data_event e WHERE e.invoiceData.id IN (:ids))")
+	int deleteDiscountItemsByInvoiceDataIdIn(@Param("ids") List<Long> ids);
+
+	/**
+	 * Bulk deletes items of events belonging to invoice data.
+	 * 
+	 * @param ids the invoice data ids.
+	 * @return the number of deleted rows.
+	 */
+	@Modifying
+	@Query("DELETE FROM ItemEntity i WHERE i.event.id IN "
+			+ "(SELECT e.id FROM invoice_data_event e WHERE e.invoiceData.id IN (:ids))")
+	int deleteItemsByInvoiceDataIdIn(@Param("ids") List<Long> ids);
+
+	/**
+	 * Bulk deletes events belonging to invoice data.
+	 * 
+	 * @param ids the invoice data ids.
+	 * @return the number of deleted rows.
+	 */
+	@Modifying
+	@Query("DELETE FROM invoice_data_event e WHERE e.invoiceData.id IN (:ids)")
+	int deleteEventsByInvoiceDataIdIn(@Param("ids") List<Long> ids);
+
+	/**
+	 * Bulk deletes invoice data, and all dependent rows must have been deleted before.
+	 * 
+	 * @param ids the invoice data ids.
+	 * @return the number of deleted rows.
 	 */
-	List<InvoiceDataEntity> findByEndDateLessThan(Date maxDate);
+	@Modifying
+	@Query("DELETE FROM InvoiceDataEntity i WHERE i.id IN (:ids)")
+	int deleteByIdIn(@Param("ids") List<Long> ids);
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.repository;
+
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import se.sll.invoicedata.core.model.entity.JobEntity;
+
+/**
+ * Job repository functions.
+ * Performs DAO operations on JobEntity
+ * 
+ * @see JobEntity
+ * @author Peter
+ */
+public interface JobRepository extends JpaRepository<JobEntity, String> {
+
+    /**
+     * Removes jobs finished before a point in time.
+     * 
+     * @param expired jobs finished before this time are removed.
+     * @return the number of removed jobs.
+     */
+    @Modifying
+    @Query("DELETE FROM JobEntity j WHERE j.finishedTime < :expired")
+    int deleteByFinishedTimeBefore(@Param("expired") Date expired);
+
+    /**
+     * Marks unfinished (queued or running) jobs owned by a node as lost, and increments their version.
+     * 
+     * @param owner the owner (node) of the jobs.
+     * @param finishedTime the time to record as finished time.
+     * @return the number of lost jobs.
+     */
+    @Modifying(clearAutomatically=true)
+    @Query("UPDATE JobEntity j SET j.status = '" + JobEntity.LOST + "', j.finishedTime = :finishedTime, j.version = j.version + 1 WHERE j.owner = :owner AND j.finishedTime IS NULL")
+    int updateUnfinishedByOwnerToLost(@Param("owner") String owner, @Param("finishedTime") Date finishedTime);
+}
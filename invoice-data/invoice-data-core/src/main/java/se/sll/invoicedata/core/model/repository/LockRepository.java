@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.repository;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import se.sll.invoicedata.core.model.entity.LockEntity;
+
+/**
+ * Lock repository functions.
+ * Performs DAO operations on LockEntity
+ * 
+ * @see LockEntity
+ * @author Peter
+ */
+public interface LockRepository extends JpaRepository<LockEntity, String> {
+
+    /**
+     * Removes locks owned by a node.
+     * 
+     * @param names the lock names.
+     * @param owner the owner (node) of the locks.
+     * @return the number of removed locks.
+     */
+    @Modifying
+    @Query("DELETE FROM LockEntity l WHERE l.name IN (:names) AND l.owner = :owner")
+    int deleteByNameInAndOwner(@Param("names") Collection<String> names, @Param("owner") String owner);
+
+    /**
+     * Removes expired locks, i.e. locks left behind by a node that has crashed or stopped.
+     * 
+     * @param names the lock names.
+     * @param expired locks created before this time are removed.
+     * @return the number of removed locks.
+     */
+    @Modifying
+    @Query("DELETE FROM LockEntity l WHERE l.name IN (:names) AND l.createdTimestamp < :expired")
+    int deleteByNameInAndCreatedTimestampBefore(@Param("names") Collection<String> names, @Param("expired") Date expired);
+
+    /**
+     * Renews locks owned by a node, i.e. sets the timestamp used to detect expired locks.
+     * 
+     * @param names the lock names.
+     * @param owner the owner (node) of the locks.
+     * @param timestamp the new timestamp.
+     * @return the number of renewed locks.
+     */
+    @Modifying
+    @Query("UPDATE LockEntity l SET l.createdTimestamp = :timestamp WHERE l.name IN (:names) AND l.owner = :owner")
+    int renewByNameInAndOwner(@Param("names") Collection<String> names, @Param("owner") String owner, @Param("timestamp") Date timestamp);
+}
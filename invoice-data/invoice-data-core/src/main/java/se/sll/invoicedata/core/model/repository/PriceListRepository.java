@@ -23,6 +23,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import se.sll.invoicedata.core.model.entity.PriceListEntity;
 
@@ -54,4 +55,22 @@ public interface PriceListRepository extends JpaRepository<PriceListEntity, Long
      */
     PriceListEntity findBySupplierIdAndServiceCodeAndValidFrom(String supplierId, String serviceCode, Date validFrom);
     
+    /**
+     * Returns all price lists with prices, i.e. the prices are fetched in the same query.
+     * 
+     * @return all price lists.
+     */
+    @Query("SELECT DISTINCT pl FROM invoice_data_pricelist pl LEFT JOIN FETCH pl.priceEntities")
+    List<PriceListEntity> findAllWithPrices();
+    
+    /**
+     * Returns all prices as flat rows, i.e. without loading any entities.
+     * 
+     * Each row is <code>[supplierId, serviceCode, validFrom, itemId, price]</code>, and 
+     * a price list without prices yields one row where itemId and price are null.
+     * 
+     * @return all prices of all price lists.
+     */
+    @Query("SELECT pl.supplierId, pl.serviceCode, pl.validFrom, p.itemId, p.price FROM invoice_data_pricelist pl LEFT JOIN pl.priceEntities p")
+    List<Object[]> findAllPrices();
 }
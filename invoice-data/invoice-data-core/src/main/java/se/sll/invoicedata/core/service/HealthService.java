@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service;
+
+import se.sll.invoicedata.core.service.dto.HealthStatus;
+
+/**
+ * Checks the health of the service. <p>
+ * 
+ * Checks are run on a background schedule and the last result is cached, i.e. frequent monitoring 
+ * requests (pings, liveness and readiness probes) are answered from the cache without any load.
+ * 
+ * @author Peter
+ *
+ */
+public interface HealthService {
+
+    /**
+     * Runs all health checks now, and caches the result.
+     * 
+     * @return the health status.
+     */
+    HealthStatus check();
+
+    /**
+     * Returns the last (cached) health status.
+     * 
+     * @return the health status, never null.
+     */
+    HealthStatus getHealthStatus();
+
+    /**
+     * Returns if the service is ready to serve requests, i.e. the last health check 
+     * was successful and is recent enough to be trusted.
+     * 
+     * @return true if ready, otherwise false.
+     */
+    boolean isReady();
+}
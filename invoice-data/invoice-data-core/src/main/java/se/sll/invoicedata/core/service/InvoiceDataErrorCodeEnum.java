@@ -72,5 +72,16 @@ public enum InvoiceDataErrorCodeEnum {
         return new InvoiceDataServiceException(this, String.format("%s: %s", getCode(), message));
         
     }
+
+    /**
+     * Returns an exception with a message previously created by this error code, i.e. 
+     * without any further formatting.
+     * 
+     * @param message the complete message, including the error code.
+     * @return the corresponding exception.
+     */
+    public InvoiceDataServiceException restoreException(String message) {
+        return new InvoiceDataServiceException(this, message);
+    }
     
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service;
+
+import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
+import se.sll.invoicedata.core.service.dto.InvoiceDataJob;
+
+/**
+ * Creates invoice data asynchronously, i.e. requests are queued and processed by a bounded 
+ * pool of worker threads, and clients poll for job completion.
+ * 
+ * @author Peter
+ *
+ */
+public interface InvoiceDataJobService {
+
+    /**
+     * Submits a create invoice data job. <p>
+     * 
+     * The request is processed in the same way as {@link InvoiceDataService#createInvoiceData(CreateInvoiceDataRequest)} 
+     * but in a transaction of its own, and errors are reported by the job.
+     * 
+     * @param createInvoiceDataRequest the request.
+     * @return the job id.
+     * @throws InvoiceDataServiceException with {@link InvoiceDataErrorCodeEnum#LIMIT_ERROR} when the queue is full.
+     */
+    String submitCreateInvoiceData(CreateInvoiceDataRequest createInvoiceDataRequest);
+
+    /**
+     * Returns if an id is a job id, i.e. distinguishes job ids from invoice data reference ids.
+     * 
+     * @param id the id.
+     * @return true if it's a job id, otherwise false.
+     */
+    boolean isJobId(String id);
+
+    /**
+     * Returns a job. <p>
+     * 
+     * Finished jobs are kept for a limited period of time.
+     * 
+     * @param jobId the job id.
+     * @return the job.
+     * @throws InvoiceDataServiceException with {@link InvoiceDataErrorCodeEnum#NOTFOUND_ERROR} when no such job exists.
+     */
+    InvoiceDataJob getJob(String jobId);
+
+    /**
+     * Returns the number of jobs waiting in queue.
+     * 
+     * @return the queue depth.
+     */
+    int getQueuedJobs();
+
+    /**
+     * Returns the number of running jobs.
+     * 
+     * @return the number of running jobs.
+     */
+    int getRunningJobs();
+}
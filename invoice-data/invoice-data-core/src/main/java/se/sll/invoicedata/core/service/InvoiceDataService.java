@@ -28,6 +28,7 @@ import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import riv.sll.invoicedata.listinvoicedataresponder._1.ListInvoiceDataRequest;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 
 /**
  * Defines Invoice Data service API.
@@ -45,6 +46,19 @@ public interface InvoiceDataService {
 	 */
 	void registerEvent(Event event);
 		
+	/**
+	 * Registers a batch of business events. <p>
+	 * 
+	 * All events are registered in one transaction, and an event rejected by validation or rating 
+	 * doesn't prevent the other events from being registered.
+	 * 
+	 * @param events
+	 *            the events to register.
+	 * @return one result per event and in the same order as the events, where null indicates 
+	 *         a registered event and otherwise the cause of rejection.
+	 */
+	List<InvoiceDataServiceException> registerEvents(List<Event> events);
+
 	/**
 	 * Returns all unprocessed events for a particular supplier.
 	 * @param request
@@ -54,6 +68,19 @@ public interface InvoiceDataService {
 	List<RegisteredEvent> getAllUnprocessedBusinessEvents(
 			GetInvoiceDataRequest request);
 
+	/**
+	 * Returns a page of unprocessed events for a particular supplier, ordered by start time. <p>
+	 * 
+	 * The page size is given by the request and limited to {@link #getEventMaxFindResultSize()}, and 
+	 * the next page is fetched with the continuation token of the actual page.
+	 * 
+	 * @param request
+	 * 
+	 * @return the page, with a continuation token unless it's the last page.
+	 */
+	ResultPage<RegisteredEvent> getUnprocessedBusinessEventsPage(
+			GetInvoiceDataRequest request);
+
 	/**
 	 * Creates an invoice data object.
 	 * 
@@ -71,6 +98,15 @@ public interface InvoiceDataService {
      */
     InvoiceData getInvoiceDataByReferenceId(String referenceId);
     
+    /**
+     * Returns the supplier of an invoice data object, i.e. a lightweight lookup 
+     * intended for access checks prior to fetching the whole object.
+     * 
+     * @param referenceId the invoice data reference id.
+     * @return the supplier id.
+     */
+    String getSupplierIdByReferenceId(String referenceId);
+    
     /**
      * Lists all invoice data.
      * 
@@ -79,6 +115,17 @@ public interface InvoiceDataService {
      */
     List<InvoiceDataHeader> listAllInvoiceData(ListInvoiceDataRequest request);
 
+    /**
+     * Returns a page of invoice data headers, ordered by start date. <p>
+     * 
+     * The page size is given by the request and limited to {@link #getEventMaxFindResultSize()}, and 
+     * the next page is fetched with the continuation token of the actual page.
+     * 
+     * @param request
+     * @return the page, with a continuation token unless it's the last page.
+     */
+    ResultPage<InvoiceDataHeader> listInvoiceDataPage(ListInvoiceDataRequest request);
+
     /**
      * Returns max limit of events to return.
      * 
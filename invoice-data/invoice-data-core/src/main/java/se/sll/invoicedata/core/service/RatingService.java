@@ -39,4 +39,10 @@ public interface RatingService {
      * @return the actual rate.
      */
     BigDecimal rate(ItemEntity itemEntity);
+
+    /**
+     * Notifies that price lists have been changed in the current transaction, 
+     * changes are visible to rating when the transaction has been committed.
+     */
+    void priceListsChanged();
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.dto;
+
+import java.util.Date;
+
+/**
+ * Immutable result of a health check, i.e. if the service is healthy, and a message 
+ * when it's not, together with the time of the check.
+ * 
+ * @author Peter
+ *
+ */
+public class HealthStatus {
+
+    private final boolean healthy;
+    private final String message;
+    private final long checkedTime;
+    private final long elapsedMillis;
+
+    public HealthStatus(final boolean healthy, final String message, final long checkedTime, final long elapsedMillis) {
+        this.healthy = healthy;
+        this.message = message;
+        this.checkedTime = checkedTime;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    // null when healthy, otherwise a reason code without details of the cause
+    public String getMessage() {
+        return message;
+    }
+
+    // millis since epoch, zero when not yet checked
+    public long getCheckedTime() {
+        return checkedTime;
+    }
+
+    // time to perform the check
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // millis since the check was performed
+    public long getAge() {
+        return System.currentTimeMillis() - checkedTime;
+    }
+
+    // JSON, i.e. also served by the readiness probe
+    @Override
+    public String toString() {
+        return String.format("{ \"healthy\": %s, \"message\": %s, \"checked\": \"%tFT%<tT\", \"elapsed\": %d }", 
+                healthy, quote(message), new Date(checkedTime), elapsedMillis);
+    }
+
+    // JSON string literal, or null
+    private static String quote(final String s) {
+        if (s == null) {
+            return "null";
+        }
+        final StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+            case '"':
+            case '\\':
+                sb.append('\\').append(c);
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.dto;
+
+import java.util.Date;
+
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+
+/**
+ * State of an asynchronous create invoice data job. <p>
+ * 
+ * A job is a snapshot of the state stored in the database, i.e. the same for all application nodes.
+ * 
+ * @author Peter
+ *
+ */
+public class InvoiceDataJob {
+    
+    /**
+     * Job status, a job is lost when the node running it stopped before it finished.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, LOST
+    }
+    
+    private final String jobId;
+    private final String supplierId;
+    private final Status status;
+    private final Date submittedTime;
+    private final Date startedTime;
+    private final Date finishedTime;
+    private final String referenceId;
+    private final InvoiceDataServiceException failure;
+
+    public InvoiceDataJob(final String jobId, final String supplierId, final Status status, 
+            final Date submittedTime, final Date startedTime, final Date finishedTime, 
+            final String referenceId, final InvoiceDataServiceException failure) {
+        this.jobId = jobId;
+        this.supplierId = supplierId;
+        this.status = status;
+        this.submittedTime = submittedTime;
+        this.startedTime = startedTime;
+        this.finishedTime = finishedTime;
+        this.referenceId = referenceId;
+        this.failure = failure;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getSubmittedTime() {
+        return submittedTime;
+    }
+
+    public Date getStartedTime() {
+        return startedTime;
+    }
+
+    public Date getFinishedTime() {
+        return finishedTime;
+    }
+
+    /**
+     * Returns the reference id of the created invoice data.
+     * 
+     * @return the reference id, or null if the job hasn't completed.
+     */
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    /**
+     * Returns the cause of a failed job.
+     * 
+     * @return the failure, or null if the job hasn't failed.
+     */
+    public InvoiceDataServiceException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns if the job has finished, i.e. completed, failed or lost.
+     * 
+     * @return true if finished, otherwise false.
+     */
+    public boolean isFinished() {
+        return (finishedTime != null);
+    }
+}
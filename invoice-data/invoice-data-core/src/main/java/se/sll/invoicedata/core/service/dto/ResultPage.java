@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.dto;
+
+import java.util.List;
+
+/**
+ * A page of a result set, and a token to continue fetching the next page.
+ * 
+ * @param <T> the result type.
+ */
+public class ResultPage<T> {
+    private final List<T> content;
+    private final String continuationToken;
+
+    public ResultPage(List<T> content, String continuationToken) {
+        this.content = content;
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Returns the page content.
+     * 
+     * @return the content, might be empty.
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the token to use when fetching the next page.
+     * 
+     * @return the token, or null if this is the last page.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings. <p>
+ * 
+ * A filter never answers false for a value that has been put, i.e. there are no false negatives, but might 
+ * answer true for a value that hasn't been put with the false positive probability the filter is created with
+ * (as long as the expected number of insertions isn't exceeded). Values can't be removed. <p>
+ * 
+ * Bit indexes are derived from one 64-bit hash by double hashing, and bits are set with compare-and-set, 
+ * i.e. no locks.
+ * 
+ * @author Peter
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashes;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Creates a filter.
+     * 
+     * @param expectedInsertions the expected number of values.
+     * @param fpp the false positive probability, e.g. 0.01 for one percent.
+     */
+    BloomFilter(final long expectedInsertions, final double fpp) {
+        final long n = Math.max(1L, expectedInsertions);
+        final long m = Math.max(64L, (long) (-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+        this.bitSize = bits.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.expectedInsertions = n;
+    }
+
+    /**
+     * Puts a value.
+     * 
+     * @param value the value.
+     */
+    void put(final String value) {
+        final long hash = hash(value);
+        final long h1 = (int) hash;
+        final long h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            set(index(h1, h2, i));
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Returns if a value might have been put.
+     * 
+     * @param value the value.
+     * @return true if the value might have been put, false if it definitely hasn't.
+     */
+    boolean mightContain(final String value) {
+        final long hash = hash(value);
+        final long h1 = (int) hash;
+        final long h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            if (!get(index(h1, h2, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // size in bits
+    long bitSize() {
+        return bitSize;
+    }
+
+    // number of puts, i.e. the false positive rate grows beyond the requested one when more than expected
+    long insertions() {
+        return insertions.get();
+    }
+
+    //
+    boolean isOverfilled() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    //
+    private long index(final long h1, final long h2, final int i) {
+        long combined = h1 + i * h2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % bitSize;
+    }
+
+    //
+    private void set(final long index) {
+        final int i = (int) (index >>> 6);
+        final long mask = 1L << index;
+        long old;
+        while (((old = bits.get(i)) & mask) == 0 && !bits.compareAndSet(i, old, old | mask)) {
+            // retry
+        }
+    }
+
+    //
+    private boolean get(final long index) {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    // 64-bit FNV-1a with a final avalanche mix
+    static long hash(final String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
+import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.model.entity.ReferenceItemEntity;
+
+/**
+ * Calculates canonical content hashes of events, i.e. SHA-256 (hex) of all registered values 
+ * of an event, its items and discount items. <p>
+ * 
+ * Derived and state values (ids, pending, credit, timestamps set by the service and total amounts) are 
+ * excluded. Values are length-prefixed to avoid ambiguities, times are in millis and 
+ * decimals are without trailing zeros, i.e. 2.0 and 2.00 are the same.
+ * 
+ * @author Peter
+ */
+final class ContentHash {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    //
+    private ContentHash() {
+    }
+
+    /**
+     * Returns the content hash of a (rated) event.
+     * 
+     * @param entity the event.
+     * @return the hash as a hex string (64 characters).
+     */
+    static String of(final BusinessEventEntity entity) {
+        final StringBuilder sb = new StringBuilder(512);
+        append(sb, entity.getEventId());
+        append(sb, entity.getAcknowledgementId());
+        append(sb, entity.getAcknowledgedBy());
+        append(sb, entity.getAcknowledgedTime());
+        append(sb, entity.getSupplierId());
+        append(sb, entity.getSupplierName());
+        append(sb, entity.getHealthcareFacility());
+        append(sb, entity.getRefContractId());
+        append(sb, entity.getServiceCode());
+        append(sb, entity.getPaymentResponsible());
+        append(sb, entity.getHealthCareCommission());
+        append(sb, entity.getStartTime());
+        append(sb, entity.getEndTime());
+        for (final ItemEntity item : entity.getItemEntities()) {
+            sb.append('I');
+            append(sb, item.getItemId());
+            append(sb, item.getDescription());
+            append(sb, item.getQty());
+            append(sb, item.getPrice());
+        }
+        for (final DiscountItemEntity discountItem : entity.getDiscountItemEntities()) {
+            sb.append('D');
+            append(sb, discountItem.getDescription());
+            append(sb, String.valueOf(discountItem.getDiscountInPercentage()));
+            append(sb, String.valueOf(discountItem.getOrderOfDiscount()));
+            for (final ReferenceItemEntity referenceItem : discountItem.getReferenceItemEntities()) {
+                sb.append('R');
+                append(sb, referenceItem.getRefItemId());
+                append(sb, String.valueOf(referenceItem.getQty()));
+            }
+        }
+        return sha256(sb.toString());
+    }
+
+    //
+    private static void append(final StringBuilder sb, final String value) {
+        if (value == null) {
+            sb.append('-');
+        } else {
+            sb.append(value.length()).append(':').append(value);
+        }
+    }
+
+    //
+    private static void append(final StringBuilder sb, final Date value) {
+        append(sb, (value == null) ? null : String.valueOf(value.getTime()));
+    }
+
+    // zero is special, stripTrailingZeros() doesn't strip it in Java 7
+    private static void append(final StringBuilder sb, final BigDecimal value) {
+        append(sb, (value == null) ? null : (value.signum() == 0) ? "0" : value.stripTrailingZeros().toPlainString());
+    }
+
+    //
+    private static String sha256(final String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(UTF_8));
+            final char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package se.sll.invoicedata.core.service.impl;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -120,7 +121,10 @@ public class CoreUtil {
      * 
      * The purpose of this method is primarily to transfer state between JAXB XML objects 
      * to and from JPA entities, and therefore are typical data type conversions carried out. 
-     * Lists are not traversed, i.e. it's about shallow copies only. 
+     * Lists are not traversed, i.e. it's about shallow copies only. <p>
+     * 
+     * Note: this is a reflective and rather expensive operation, the service implementations 
+     * use the static mappers in {@link EntityBeanConverter} instead.
      * 
      * @param source the object instance to copy state from.
      * @param targetSpec the class specifying fields to be copied,
@@ -145,6 +149,25 @@ public class CoreUtil {
         }
         return target;
     }
+
+    /**
+     * Splits a list into consecutive chunks (sub list views), i.e. to keep the number of
+     * parameters in a SQL IN clause within limits.
+     * 
+     * @param list the list to split.
+     * @param chunkSize the max size of a chunk, must be greater than 0.
+     * @return the chunks, empty if the list is empty.
+     */
+    public static <T> List<List<T>> partition(final List<T> list, final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        final List<List<T>> chunks = new ArrayList<List<T>>((list.size() + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < list.size(); i += chunkSize) {
+            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+        }
+        return chunks;
+    }
     
     /**
      * Returns a {@link Date} date and time representation.
@@ -175,6 +198,18 @@ public class CoreUtil {
         return defaultValue;
     }
 
+    /**
+     * Returns a {@link Date} representation with full date and time precision. <p>
+     * 
+     * Unlike {@link #toDate(XMLGregorianCalendar)} the time of day is kept, i.e. 
+     * the same conversion as carried out by {@link #copyProperties(Object, Class)}.
+     * 
+     * @param cal the actual date and time.
+     * @return the {@link Date} representation, or null if cal is null.
+     */
+    public static Date toDateTime(XMLGregorianCalendar cal) {
+        return (cal == null) ? null : cal.toGregorianCalendar().getTime();
+    }
     
     /**
      * Returns a {@link XMLGregorianCalendar} date and time representation.
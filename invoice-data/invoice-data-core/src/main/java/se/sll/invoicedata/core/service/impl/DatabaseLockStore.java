@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import se.sll.invoicedata.core.model.entity.LockEntity;
+import se.sll.invoicedata.core.model.repository.LockRepository;
+
+/**
+ * Cluster wide locks backed by database rows, see {@link LockEntity}. <p>
+ * 
+ * Locks are inserted and removed in separate (new) transactions, i.e. they are visible to other nodes 
+ * immediately and independent of the outcome of the transaction of the caller. <p>
+ * 
+ * Locks older than <code>lock.expirySeconds</code> are considered to be left behind by a crashed node and 
+ * are taken over by others. Locks held by this node are renewed according to <code>lock.renewCron</code>, i.e. 
+ * long running operations keep their locks, and the renew interval shall be well below the expiry time.
+ * 
+ * @author Peter
+ */
+@Service
+public class DatabaseLockStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(DatabaseLockStore.class);
+
+    // identifies this node (pid@host)
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    
+    // locks currently held by this node
+    private final Set<String> held = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private LockRepository lockRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${lock.expirySeconds:300}")
+    private int expirySeconds;
+
+    /**
+     * Tries to acquire locks for all names, and acquires none if any of them is held by someone else.
+     * 
+     * @param names the unique resource names to lock.
+     * @return true if all locks were acquired, otherwise false.
+     */
+    public boolean tryAcquire(final Collection<String> names) {
+        try {
+            newTransaction().execute(new TransactionCallback<Boolean>() {
+                @Override
+                public Boolean doInTransaction(TransactionStatus status) {
+                    final Date expired = new Date(System.currentTimeMillis() - (expirySeconds * 1000L));
+                    final int n = lockRepository.deleteByNameInAndCreatedTimestampBefore(names, expired);
+                    if (n > 0) {
+                        log.warn("removed {} expired lock(s)", n);
+                    }
+                    for (final String name : names) {
+                        entityManager.persist(new LockEntity(name, owner));
+                    }
+                    entityManager.flush();
+                    return Boolean.TRUE;
+                }
+            });
+            held.addAll(names);
+            return true;
+        } catch (PersistenceException e) {
+            log.debug("unable to acquire locks: {}", e.getMessage());
+        } catch (DataAccessException e) {
+            log.debug("unable to acquire locks: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Releases locks held by this node.
+     * 
+     * @param names the unique resource names of the locks to remove.
+     */
+    public void release(final Collection<String> names) {
+        held.removeAll(names);
+        newTransaction().execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                lockRepository.deleteByNameInAndOwner(names, owner);
+            }
+        });
+    }
+
+    @Scheduled(cron="${lock.renewCron:0 * * * * ?}")
+    public void scheduledRenew() {
+        renew();
+    }
+
+    /**
+     * Renews all locks held by this node, i.e. they don't expire as long as they are held.
+     * 
+     * @return the number of renewed locks.
+     */
+    public int renew() {
+        final List<String> names = new ArrayList<String>(held);
+        if (names.isEmpty()) {
+            return 0;
+        }
+        final int n = newTransaction().execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                return lockRepository.renewByNameInAndOwner(names, owner, new Date());
+            }
+        });
+        if (n < names.size()) {
+            log.warn("renewed {} of {} lock(s), the others have expired and might be held by another node", n, names.size());
+        }
+        return n;
+    }
+    
+    //
+    private TransactionTemplate newTransaction() {
+        final TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -22,7 +22,8 @@
  */
 package se.sll.invoicedata.core.service.impl;
 
-import static se.sll.invoicedata.core.service.impl.CoreUtil.copyProperties;
+import static se.sll.invoicedata.core.service.impl.CoreUtil.toDateTime;
+import static se.sll.invoicedata.core.service.impl.CoreUtil.toXMLGregorianCalendar;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,16 +32,26 @@ import java.util.List;
 import riv.sll.invoicedata._1.DiscountItem;
 import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.InvoiceData;
+import riv.sll.invoicedata._1.InvoiceDataHeader;
 import riv.sll.invoicedata._1.Item;
 import riv.sll.invoicedata._1.ReferenceItem;
 import riv.sll.invoicedata._1.RegisteredEvent;
+import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
 import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
 import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
 import se.sll.invoicedata.core.model.entity.ReferenceItemEntity;
+import se.sll.invoicedata.core.model.repository.InvoiceDataHeaderRow;
 
 /**
+ * Static mappers between JAXB beans and entities. <p>
+ * 
+ * Properties are copied explicitly, i.e. without reflection, and the mapping rules are the same as 
+ * the ones previously applied by {@link CoreUtil#copyProperties(Object, Class)}: properties are matched by name, 
+ * dates are converted to and from {@link javax.xml.datatype.XMLGregorianCalendar} and lists are not traversed unless 
+ * stated otherwise.
+ * 
  * @author muqkha
  * 
  */
@@ -53,9 +64,22 @@ public class EntityBeanConverter {
 	 * @return the entity bean.
 	 */
 	static BusinessEventEntity toBusinessEventEntity(final Event event) {
-		final BusinessEventEntity businessEventEntity = copyProperties(event, BusinessEventEntity.class);
+		final BusinessEventEntity businessEventEntity = new BusinessEventEntity();
+		businessEventEntity.setEventId(event.getEventId());
+		businessEventEntity.setSupplierId(event.getSupplierId());
+		businessEventEntity.setHealthcareFacility(event.getHealthcareFacility());
+		businessEventEntity.setRefContractId(event.getRefContractId());
+		businessEventEntity.setSupplierName(event.getSupplierName());
+		businessEventEntity.setServiceCode(event.getServiceCode());
+		businessEventEntity.setPaymentResponsible(event.getPaymentResponsible());
+		businessEventEntity.setHealthCareCommission(event.getHealthCareCommission());
+		businessEventEntity.setAcknowledgementId(event.getAcknowledgementId());
+		businessEventEntity.setAcknowledgedBy(event.getAcknowledgedBy());
+		businessEventEntity.setAcknowledgedTime(toDateTime(event.getAcknowledgedTime()));
+		businessEventEntity.setStartTime(toDateTime(event.getStartTime()));
+		businessEventEntity.setEndTime(toDateTime(event.getEndTime()));
 		for (final Item item : event.getItemList()) {
-			businessEventEntity.addItemEntity(copyProperties(item, ItemEntity.class));
+			businessEventEntity.addItemEntity(toItemEntity(item));
 		}
 
 		return businessEventEntity;
@@ -67,14 +91,87 @@ public class EntityBeanConverter {
 	 * @return RegisteredEvent
 	 */
 	static RegisteredEvent fromBusinessEventEntityToRegisteredEvent(final BusinessEventEntity businessEventEntity) {
-		final RegisteredEvent registeredEvent = copyProperties(businessEventEntity, RegisteredEvent.class);
+		final RegisteredEvent registeredEvent = new RegisteredEvent();
+		if (businessEventEntity.getId() != null) {
+			registeredEvent.setId(businessEventEntity.getId());
+		}
+		registeredEvent.setCredit(businessEventEntity.isCredit());
+		registeredEvent.setTotalAmount(businessEventEntity.getTotalAmount());
+		registeredEvent.setEventId(businessEventEntity.getEventId());
+		registeredEvent.setSupplierId(businessEventEntity.getSupplierId());
+		registeredEvent.setHealthcareFacility(businessEventEntity.getHealthcareFacility());
+		registeredEvent.setRefContractId(businessEventEntity.getRefContractId());
+		registeredEvent.setSupplierName(businessEventEntity.getSupplierName());
+		registeredEvent.setServiceCode(businessEventEntity.getServiceCode());
+		registeredEvent.setPaymentResponsible(businessEventEntity.getPaymentResponsible());
+		registeredEvent.setHealthCareCommission(businessEventEntity.getHealthCareCommission());
+		registeredEvent.setAcknowledgementId(businessEventEntity.getAcknowledgementId());
+		registeredEvent.setAcknowledgedBy(businessEventEntity.getAcknowledgedBy());
+		registeredEvent.setAcknowledgedTime(toXMLGregorianCalendar(businessEventEntity.getAcknowledgedTime()));
+		registeredEvent.setStartTime(toXMLGregorianCalendar(businessEventEntity.getStartTime()));
+		registeredEvent.setEndTime(toXMLGregorianCalendar(businessEventEntity.getEndTime()));
 		
-		CoreUtil.copyGenericLists(registeredEvent.getItemList(), businessEventEntity.getItemEntities(), Item.class);
+		for (final ItemEntity itemEntity : businessEventEntity.getItemEntities()) {
+			registeredEvent.getItemList().add(toItem(itemEntity));
+		}
 		registeredEvent.getDiscountItemList().addAll(copyDiscountItemEntityToDiscountItem(businessEventEntity.getDiscountItemEntities()));
 
 		return registeredEvent;
 	}
 	
+	/**
+	 * Returns a credit copy of an entity, i.e. all properties and items except 
+	 * the invoice data reference and identities.
+	 * 
+	 * @param businessEventEntity the entity to credit.
+	 * @return the credit entity (not yet persisted).
+	 */
+	static BusinessEventEntity toCreditEntity(final BusinessEventEntity businessEventEntity) {
+		final BusinessEventEntity creditEntity = new BusinessEventEntity();
+		creditEntity.setCredit(true);
+		creditEntity.setEventId(businessEventEntity.getEventId());
+		creditEntity.setSupplierId(businessEventEntity.getSupplierId());
+		creditEntity.setHealthcareFacility(businessEventEntity.getHealthcareFacility());
+		creditEntity.setRefContractId(businessEventEntity.getRefContractId());
+		creditEntity.setSupplierName(businessEventEntity.getSupplierName());
+		creditEntity.setServiceCode(businessEventEntity.getServiceCode());
+		creditEntity.setPaymentResponsible(businessEventEntity.getPaymentResponsible());
+		creditEntity.setHealthCareCommission(businessEventEntity.getHealthCareCommission());
+		creditEntity.setAcknowledgementId(businessEventEntity.getAcknowledgementId());
+		creditEntity.setAcknowledgedBy(businessEventEntity.getAcknowledgedBy());
+		creditEntity.setAcknowledgedTime(businessEventEntity.getAcknowledgedTime());
+		creditEntity.setStartTime(businessEventEntity.getStartTime());
+		creditEntity.setEndTime(businessEventEntity.getEndTime());
+		for (final ItemEntity itemEntity : businessEventEntity.getItemEntities()) {
+			final ItemEntity copy = new ItemEntity();
+			copy.setItemId(itemEntity.getItemId());
+			copy.setDescription(itemEntity.getDescription());
+			copy.setQty(itemEntity.getQty());
+			copy.setPrice(itemEntity.getPrice());
+			creditEntity.addItemEntity(copy);
+		}
+		
+		return creditEntity;
+	}
+	
+	static ItemEntity toItemEntity(final Item item) {
+		final ItemEntity itemEntity = new ItemEntity();
+		itemEntity.setItemId(item.getItemId());
+		itemEntity.setDescription(item.getDescription());
+		itemEntity.setQty(item.getQty());
+		itemEntity.setPrice(item.getPrice());
+		return itemEntity;
+	}
+	
+	static Item toItem(final ItemEntity itemEntity) {
+		final Item item = new Item();
+		item.setItemId(itemEntity.getItemId());
+		item.setDescription(itemEntity.getDescription());
+		item.setQty(itemEntity.getQty());
+		item.setPrice(itemEntity.getPrice());
+		return item;
+	}
+	
 	private static List<DiscountItem> copyDiscountItemEntityToDiscountItem(Collection<DiscountItemEntity> discountItemCollection) {
 		List<DiscountItem> discountItemList = new ArrayList<DiscountItem>();
 		for (DiscountItemEntity discountItemEntity : discountItemCollection) {
@@ -85,17 +182,44 @@ public class EntityBeanConverter {
 	}
 	
 	static DiscountItem toDiscountItem(final DiscountItemEntity discountItemEntity) {
-		final DiscountItem discountItem = copyProperties(discountItemEntity, DiscountItem.class);
+		final DiscountItem discountItem = new DiscountItem();
+		discountItem.setDescription(discountItemEntity.getDescription());
+		discountItem.setDiscountInPercentage(discountItemEntity.getDiscountInPercentage());
+		discountItem.setOrderOfDiscount(discountItemEntity.getOrderOfDiscount());
 		discountItem.setDiscountedPrice(discountItemEntity.getTotalAmount());
 		
 		for (final ReferenceItemEntity referenceItemEntity : discountItemEntity.getReferenceItemEntities()) {
-			final ReferenceItem referenceItem = copyProperties(referenceItemEntity, ReferenceItem.class);
+			final ReferenceItem referenceItem = new ReferenceItem();
+			referenceItem.setRefItemId(referenceItemEntity.getRefItemId());
+			referenceItem.setQty(referenceItemEntity.getQty());
 			discountItem.getReferenceItemList().add(referenceItem);
 		}
 		
 		return discountItem;	
 	}
 	
+	/**
+	 * Maps DiscountItem to an entity bean, including reference items.
+	 * 
+	 * @param discountItem the JAXB object.
+	 * @return the entity bean.
+	 */
+	static DiscountItemEntity toDiscountItemEntity(final DiscountItem discountItem) {
+		final DiscountItemEntity discountItemEntity = new DiscountItemEntity();
+		discountItemEntity.setDescription(discountItem.getDescription());
+		discountItemEntity.setDiscountInPercentage(discountItem.getDiscountInPercentage());
+		discountItemEntity.setOrderOfDiscount(discountItem.getOrderOfDiscount());
+		
+		for (final ReferenceItem referenceItem : discountItem.getReferenceItemList()) {
+			final ReferenceItemEntity referenceItemEntity = new ReferenceItemEntity();
+			referenceItemEntity.setRefItemId(referenceItem.getRefItemId());
+			referenceItemEntity.setQty(referenceItem.getQty());
+			discountItemEntity.addReferenceItemEntity(referenceItemEntity);
+		}
+		
+		return discountItemEntity;
+	}
+	
 	/**
 	 * Maps list of BusinessEventEntity to RegisteredEvent list
 	 * @param bEEntityList
@@ -111,12 +235,78 @@ public class EntityBeanConverter {
 		return registeredEventList;
 	}
 	
+	/**
+	 * Maps CreateInvoiceDataRequest to a new InvoiceDataEntity
+	 * @param createInvoiceDataRequest
+	 * @return InvoiceDataEntity
+	 */
+	static InvoiceDataEntity toInvoiceDataEntity(final CreateInvoiceDataRequest createInvoiceDataRequest) {
+		final InvoiceDataEntity invoiceDataEntity = new InvoiceDataEntity();
+		invoiceDataEntity.setSupplierId(createInvoiceDataRequest.getSupplierId());
+		invoiceDataEntity.setPaymentResponsible(createInvoiceDataRequest.getPaymentResponsible());
+		invoiceDataEntity.setCreatedBy(createInvoiceDataRequest.getCreatedBy());
+		return invoiceDataEntity;
+	}
+	
 	/**
 	 * Maps InvoiceDataEntity to InvoiceData object
 	 * @param entity
 	 * @return InvoiceData
 	 */
 	static InvoiceData fromInvoiceDataEntityToInvoiceData(final InvoiceDataEntity entity) {
-		return copyProperties(entity, InvoiceData.class);
+		return copyHeader(entity, new InvoiceData());
+	}
+	
+	/**
+	 * Maps InvoiceDataEntity to InvoiceDataHeader object
+	 * @param entity
+	 * @return InvoiceDataHeader
+	 */
+	static InvoiceDataHeader fromInvoiceDataEntityToInvoiceDataHeader(final InvoiceDataEntity entity) {
+		return copyHeader(entity, new InvoiceDataHeader());
+	}
+	
+	/**
+	 * Maps InvoiceDataHeaderRow to InvoiceDataHeader object
+	 * @param row
+	 * @return InvoiceDataHeader
+	 */
+	static InvoiceDataHeader fromInvoiceDataHeaderRowToInvoiceDataHeader(final InvoiceDataHeaderRow row) {
+		final InvoiceDataHeader header = new InvoiceDataHeader();
+		header.setReferenceId(row.getReferenceId());
+		header.setSupplierId(row.getSupplierId());
+		header.setPaymentResponsible(row.getPaymentResponsible());
+		header.setCreatedBy(row.getCreatedBy());
+		header.setCreatedTime(toXMLGregorianCalendar(row.getCreatedTime()));
+		header.setTotalAmount(row.getTotalAmount());
+		header.setStartDate(toXMLGregorianCalendar(row.getStartDate()));
+		header.setEndDate(toXMLGregorianCalendar(row.getEndDate()));
+		return header;
+	}
+
+	/**
+	 * Maps list of InvoiceDataHeaderRow to InvoiceDataHeader list
+	 * @param rows
+	 * @return List<InvoiceDataHeader>
+	 */
+	static List<InvoiceDataHeader> fromInvoiceDataHeaderRowToInvoiceDataHeader(final List<InvoiceDataHeaderRow> rows) {
+		final List<InvoiceDataHeader> headers = new ArrayList<InvoiceDataHeader>(rows.size());
+		for (final InvoiceDataHeaderRow row : rows) {
+			headers.add(fromInvoiceDataHeaderRowToInvoiceDataHeader(row));
+		}
+		return headers;
+	}
+	
+	//
+	private static <T extends InvoiceDataHeader> T copyHeader(final InvoiceDataEntity entity, final T header) {
+		header.setReferenceId(entity.getReferenceId());
+		header.setSupplierId(entity.getSupplierId());
+		header.setPaymentResponsible(entity.getPaymentResponsible());
+		header.setCreatedBy(entity.getCreatedBy());
+		header.setCreatedTime(toXMLGregorianCalendar(entity.getCreatedTime()));
+		header.setTotalAmount(entity.getTotalAmount());
+		header.setStartDate(toXMLGregorianCalendar(entity.getStartDate()));
+		header.setEndDate(toXMLGregorianCalendar(entity.getEndDate()));
+		return header;
 	}
 }
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import se.sll.invoicedata.core.jmx.StatusBean;
+import se.sll.invoicedata.core.model.repository.InvoiceDataRepository;
+import se.sll.invoicedata.core.service.HealthService;
+import se.sll.invoicedata.core.service.dto.HealthStatus;
+
+/**
+ * Runs health checks on a schedule (<code>health.cron</code>) and caches the result. <p>
+ * 
+ * The status is considered stale, i.e. not ready, when the last check is older 
+ * than <code>health.maxAgeSeconds</code>. Status changes are logged, not each check. <p>
+ * 
+ * The status is published without authentication, i.e. a failed check only reports a fixed reason code 
+ * and the cause is logged.
+ * 
+ * @author Peter
+ *
+ */
+@Service
+public class HealthServiceImpl implements HealthService {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthServiceImpl.class);
+
+    // reason code of a failed database check
+    static final String DATABASE_UNAVAILABLE = "DATABASE_UNAVAILABLE";
+
+    @Autowired
+    private InvoiceDataRepository invoiceDataRepository;
+
+    @Autowired
+    private StatusBean statusBean;
+
+    @Value("${health.maxAgeSeconds:60}")
+    private int maxAgeSeconds;
+
+    private volatile HealthStatus healthStatus = new HealthStatus(false, "not yet checked", 0L, 0L);
+
+    @PostConstruct
+    public void init() {
+        check();
+    }
+
+    @Scheduled(cron="${health.cron:0/15 * * * * ?}")
+    public void scheduledCheck() {
+        check();
+    }
+
+    @Override
+    public HealthStatus check() {
+        final long start = System.nanoTime();
+        String message = null;
+        Throwable cause = null;
+        try {
+            checkDatabase();
+        } catch (Throwable throwable) {
+            message = DATABASE_UNAVAILABLE;
+            cause = throwable;
+        }
+        final long elapsed = System.nanoTime() - start;
+        statusBean.record("HealthService.check()", elapsed);
+
+        final HealthStatus status = new HealthStatus(message == null, message, System.currentTimeMillis(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        logChange(healthStatus, status, cause);
+        healthStatus = status;
+        return status;
+    }
+
+    @Override
+    public HealthStatus getHealthStatus() {
+        return healthStatus;
+    }
+
+    @Override
+    public boolean isReady() {
+        final HealthStatus status = healthStatus;
+        return status.isHealthy() && status.getAge() <= TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    // checks database
+    private void checkDatabase() {
+        invoiceDataRepository.findOne(0L);
+    }
+
+    //
+    private void logChange(final HealthStatus previous, final HealthStatus current, final Throwable cause) {
+        if (current.isHealthy() && !previous.isHealthy()) {
+            log.info("health-check: OK {}", current);
+        } else if (!current.isHealthy() && (previous.isHealthy() || !current.getMessage().equals(previous.getMessage()))) {
+            log.error("health-check: FAILED " + current, cause);
+        } else {
+            log.debug("health-check: {}", current);
+        }
+    }
+}
@@ -22,23 +22,24 @@
  */
 package se.sll.invoicedata.core.service.impl;
 
-import static se.sll.invoicedata.core.service.impl.CoreUtil.copyProperties;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
 import riv.sll.invoicedata._1.DiscountItem;
 import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.InvoiceData;
-import riv.sll.invoicedata._1.InvoiceDataHeader;
 import riv.sll.invoicedata._1.ReferenceItem;
 import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
 import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.model.repository.EventAggregateRow;
 import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
 
 /**
@@ -119,6 +120,11 @@ public class InvoiceDataBaseService {
     	mandatory(createInvoiceDataRequest.getPaymentResponsible(), "paymentResponsible");
     	mandatory(createInvoiceDataRequest.getCreatedBy(), "createdBy");
     	mandatory(createInvoiceDataRequest.getAcknowledgementIdList(), "acknowledgementIdList");
+    	// ids are queried in chunks, i.e. duplicates can't be detected by counting matching events
+    	final List<String> idList = createInvoiceDataRequest.getAcknowledgementIdList();
+    	if (new HashSet<String>(idList).size() != idList.size()) {
+    		throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("acknowledgementIdList contains duplicates");
+    	}
     }
     
     private void validateItemListForNullOrEmpty(final List<ItemEntity> items) {
@@ -154,57 +160,73 @@ public class InvoiceDataBaseService {
 		});		
 	}
 
-    InvoiceDataEntity validate(InvoiceDataEntity invoiceDataEntity) {
+    InvoiceDataEntity validate(InvoiceDataEntity invoiceDataEntity, long eventCount) {
         mandatory(invoiceDataEntity.getCreatedBy(), "invoiceData.createdBy");
         mandatory(invoiceDataEntity.getPaymentResponsible(), "invoiceData.paymentResponsible");
         mandatory(invoiceDataEntity.getSupplierId(), "invoiceData.supplierId");
-        if (invoiceDataEntity.getBusinessEventEntities().size() == 0) {
+        if (eventCount == 0) {
             throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("invoiceData.events");            
         }
 
         return invoiceDataEntity;
     }
     
-    BusinessEventEntity validate(BusinessEventEntity entity, CreateInvoiceDataRequest createInvoiceDataRequest) {
-        if (!entity.getSupplierId().equalsIgnoreCase(createInvoiceDataRequest.getSupplierId())) {
+    EventAggregateRow validate(EventAggregateRow row, CreateInvoiceDataRequest createInvoiceDataRequest) {
+        if (!row.getSupplierId().equalsIgnoreCase(createInvoiceDataRequest.getSupplierId())) {
             throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("acknowledgementId is not a part of the same supplier: " + createInvoiceDataRequest.getSupplierId());
-        } else if (!entity.getPaymentResponsible().equalsIgnoreCase(createInvoiceDataRequest.getPaymentResponsible())) {
+        } else if (!row.getPaymentResponsible().equalsIgnoreCase(createInvoiceDataRequest.getPaymentResponsible())) {
             throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("acknowledgementId is not a part of the same paymentResponsible: " + createInvoiceDataRequest.getPaymentResponsible());
         }
 
-        return entity;
+        return row;
     }
     
     BusinessEventEntity createCreditEntity(
 			final BusinessEventEntity creditCandidate) {
-		final BusinessEventEntity creditEntity = copyProperties(creditCandidate, BusinessEventEntity.class);
-		creditEntity.setCredit(true);
-		creditEntity.setInvoiceData(null);
+		final BusinessEventEntity creditEntity = EntityBeanConverter.toCreditEntity(creditCandidate);
 		creditCandidate.setCredited(true);
-		for (final ItemEntity itemEntity : creditCandidate.getItemEntities()) {
-		    final ItemEntity copy = copyProperties(itemEntity, ItemEntity.class);
-		    // set parent to null to ensure acceptance by the new
-		    copy.setEvent(null);
-		    creditEntity.addItemEntity(copy);
-		}
 		return creditEntity;
 	}
     
+	/**
+	 * Validates aggregated event values against the request, and sets the derived values of the invoice data. <p>
+	 * 
+	 * All aggregated events must have a stored total amount.
+	 */
 	InvoiceDataEntity getValidInvoiceDataEntity(
 			CreateInvoiceDataRequest createInvoiceDataRequest,
 			final InvoiceDataEntity invoiceDataEntity,
-			final List<BusinessEventEntity> entities) {
-		int actual = 0;
-		for (final BusinessEventEntity entity : entities) {        	
-		    invoiceDataEntity.addBusinessEventEntity(validate(entity, createInvoiceDataRequest));
-		    actual++;
+			final List<EventAggregateRow> rows) {
+		long actual = 0;
+		Date start = null;
+		Date end = null;
+		BigDecimal amount = BigDecimal.valueOf(0.0);
+		for (final EventAggregateRow row : validate(rows, createInvoiceDataRequest)) {
+		    actual += row.getCount();
+		    if (start == null || row.getStartTime().before(start)) {
+		        start = row.getStartTime();
+		    }
+		    if (end == null || row.getEndTime().after(end)) {
+		        end = row.getEndTime();
+		    }
+		    amount = row.isCredit() ? amount.subtract(row.getTotalAmount()) : amount.add(row.getTotalAmount());
 		}
 		final int expected = createInvoiceDataRequest.getAcknowledgementIdList().size();
 		if (expected != actual) {
 		    throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("given event list doesn't match database state! entities available: " + actual + ", request contains: " + expected); 
 		}
+		validate(invoiceDataEntity, actual);
+		invoiceDataEntity.setDerivedValues(start, end, amount);
 		
-		return validate(invoiceDataEntity);
+		return invoiceDataEntity;
+	}
+
+	// validates supplier and payment responsible of all groups
+	private List<EventAggregateRow> validate(final List<EventAggregateRow> rows, final CreateInvoiceDataRequest createInvoiceDataRequest) {
+		for (final EventAggregateRow row : rows) {
+			validate(row, createInvoiceDataRequest);
+		}
+		return rows;
 	}
 	
 	InvoiceData getInvoiceData(final String referenceId, final InvoiceDataEntity invoiceDataEntity) {
@@ -232,15 +254,33 @@ public class InvoiceDataBaseService {
 		return id;
 	}
 
-	List<InvoiceDataHeader> getInvoiceDataHeader(List<InvoiceDataEntity> invoiceDataEntityList) {
-		
-		final List<InvoiceDataHeader> invoiceDataList = new ArrayList<InvoiceDataHeader>(invoiceDataEntityList.size());
-		
-		for (final InvoiceDataEntity iDataEntity : invoiceDataEntityList) {
-		    invoiceDataList.add(CoreUtil.copyProperties(iDataEntity, InvoiceDataHeader.class));
-		}
+	/**
+	 * Creates a keyset paging continuation token.
+	 * 
+	 * @param time the key time.
+	 * @param id the key id.
+	 * @return the token.
+	 */
+	String createContinuationToken(final Date time, final Long id) {
+		return time.getTime() + ":" + id;
+	}
 
-		return invoiceDataList;
+	/**
+	 * Extracts the key from a keyset paging continuation token.
+	 * 
+	 * @param continuationToken the token.
+	 * @return the key time (millis) and id.
+	 */
+	long[] extractKey(final String continuationToken) {
+		final String[] parts = continuationToken.split(":");
+		try {
+			if (parts.length == 2) {
+				return new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]) };
+			}
+		} catch (NumberFormatException nfException) {
+			// reported as validation error below
+		}
+		throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("continuationToken has invalid format:" + continuationToken);
 	}
 
 }
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
+import se.sll.invoicedata.core.jmx.StatusBean;
+import se.sll.invoicedata.core.model.entity.JobEntity;
+import se.sll.invoicedata.core.model.repository.JobRepository;
+import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
+import se.sll.invoicedata.core.service.InvoiceDataJobService;
+import se.sll.invoicedata.core.service.InvoiceDataService;
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+import se.sll.invoicedata.core.service.dto.InvoiceDataJob;
+
+/**
+ * Runs create invoice data jobs on a bounded pool of worker threads. <p>
+ * 
+ * Both the number of workers and the queue length are limited, i.e. submits are rejected when the queue is full. 
+ * Job state is stored in the database, i.e. a job might be polled from any node, and finished jobs are removed 
+ * after a configurable period of time. <p>
+ * 
+ * Queued and running jobs are kept in memory by the node they were submitted to. They are reported as lost 
+ * when the node stops, or when not finished within the job timeout (i.e. the node has crashed), and must 
+ * then be submitted again. Job updates are versioned, and the outcome of a job that actually finished 
+ * always wins over a concurrent lost report.
+ * 
+ * @author Peter
+ *
+ */
+@Service
+public class InvoiceDataJobServiceImpl implements InvoiceDataJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceDataJobServiceImpl.class);
+
+    // prefix distinguishing job ids from invoice data reference ids (numeric)
+    static final String JOB_ID_PREFIX = "job-";
+
+    // identifies this node (pid@host)
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Autowired
+    private InvoiceDataService invoiceDataService;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatusBean statusBean;
+
+    @Value("${invoicedata.jobThreads:2}")
+    private int jobThreads;
+
+    @Value("${invoicedata.jobQueueSize:100}")
+    private int jobQueueSize;
+
+    @Value("${invoicedata.jobRetentionSeconds:3600}")
+    private int jobRetentionSeconds;
+
+    @Value("${invoicedata.jobTimeoutSeconds:3600}")
+    private int jobTimeoutSeconds;
+
+    @Value("${invoicedata.jobShutdownSeconds:30}")
+    private int jobShutdownSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(jobThreads, jobThreads, 0L, TimeUnit.MILLISECONDS, 
+                new ArrayBlockingQueue<Runnable>(jobQueueSize), new WorkerThreadFactory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        try {
+            // running jobs are interrupted, but might still commit their outcome
+            if (!executor.awaitTermination(jobShutdownSeconds, TimeUnit.SECONDS)) {
+                log.warn("Running job(s) not finished within {} seconds of shutdown", jobShutdownSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final int n = new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                return jobRepository.updateUnfinishedByOwnerToLost(owner, new Date());
+            }
+        });
+        if (n > 0) {
+            log.warn("{} queued or running job(s) lost at shutdown", n);
+        }
+    }
+
+    @Override
+    public String submitCreateInvoiceData(final CreateInvoiceDataRequest createInvoiceDataRequest) {
+        removeExpiredJobs();
+
+        final JobEntity job = jobRepository.save(new JobEntity(JOB_ID_PREFIX + UUID.randomUUID().toString(), 
+                createInvoiceDataRequest.getSupplierId(), owner));
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(job, createInvoiceDataRequest);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobRepository.delete(job.getJobId());
+            throw InvoiceDataErrorCodeEnum.LIMIT_ERROR.createException(jobQueueSize, "create invoice data job queue is full, please try again later");
+        }
+        log.info("Submitted job {} for supplier(id:{}), acknowledgementIdList size: {}", 
+                new Object[] { job.getJobId(), job.getSupplierId(), createInvoiceDataRequest.getAcknowledgementIdList().size() });
+
+        return job.getJobId();
+    }
+
+    @Override
+    public boolean isJobId(final String id) {
+        return (id != null && id.startsWith(JOB_ID_PREFIX));
+    }
+
+    @Override
+    public InvoiceDataJob getJob(final String jobId) {
+        JobEntity job = (jobId == null) ? null : jobRepository.findOne(jobId);
+        if (job == null) {
+            throw InvoiceDataErrorCodeEnum.NOTFOUND_ERROR.createException("job", jobId);
+        }
+        if (isTimedOut(job)) {
+            log.warn("Job {} of node {} not finished within {} seconds, it's lost", new Object[] { jobId, job.getOwner(), jobTimeoutSeconds });
+            job.lost();
+            try {
+                job = jobRepository.save(job);
+            } catch (OptimisticLockingFailureException e) {
+                // updated by the worker in the meantime, i.e. not lost
+                job = jobRepository.findOne(jobId);
+            }
+        }
+        return toInvoiceDataJob(job);
+    }
+
+    @Override
+    public int getQueuedJobs() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int getRunningJobs() {
+        return executor.getActiveCount();
+    }
+
+    // returns if an unfinished job has timed out, running jobs from start and queued jobs from submit (never started by a crashed node)
+    private boolean isTimedOut(final JobEntity job) {
+        if (job.isFinished()) {
+            return false;
+        }
+        final Date since = (job.getStartedTime() == null) ? job.getSubmittedTime() : job.getStartedTime();
+        return since.getTime() < System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(jobTimeoutSeconds);
+    }
+
+    // runs a job in a worker thread, and records queue wait time
+    private void runJob(final JobEntity queued, final CreateInvoiceDataRequest createInvoiceDataRequest) {
+        statusBean.record("InvoiceDataJobService.queued()", TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - queued.getSubmittedTime().getTime()));
+        queued.started();
+        final JobEntity job;
+        try {
+            job = jobRepository.save(queued);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Job {} reported as lost before it was started, skipped", queued.getJobId());
+            return;
+        }
+        statusBean.start("InvoiceDataJobService.createInvoiceData()");
+        try {
+            job.completed(invoiceDataService.createInvoiceData(createInvoiceDataRequest));
+        } catch (InvoiceDataServiceException e) {
+            log.error("Job " + job.getJobId() + " failed: " + e.getMessage());
+            job.failed(e.getCode().name(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Job " + job.getJobId() + " failed", e);
+            final InvoiceDataServiceException failure = InvoiceDataErrorCodeEnum.TECHNICAL_ERROR.createException(e.getMessage());
+            job.failed(failure.getCode().name(), failure.getMessage());
+        } finally {
+            saveOutcome(job);
+            statusBean.stop();
+        }
+    }
+
+    // stores the outcome of a job, and replaces a concurrent lost report since the work has actually been done
+    private void saveOutcome(final JobEntity job) {
+        try {
+            jobRepository.save(job);
+        } catch (OptimisticLockingFailureException e) {
+            final JobEntity stored = jobRepository.findOne(job.getJobId());
+            log.warn("Job {} reported as {} before it finished, storing outcome {}", new Object[] { job.getJobId(), stored.getStatus(), job.getStatus() });
+            if (JobEntity.COMPLETED.equals(job.getStatus())) {
+                stored.completed(job.getReferenceId());
+            } else {
+                stored.failed(job.getErrorCode(), job.getErrorMessage());
+            }
+            jobRepository.save(stored);
+        }
+    }
+
+    // removes finished jobs older than the retention period
+    private void removeExpiredJobs() {
+        final Date expired = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(jobRetentionSeconds));
+        new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                return jobRepository.deleteByFinishedTimeBefore(expired);
+            }
+        });
+    }
+
+    //
+    private static InvoiceDataJob toInvoiceDataJob(final JobEntity job) {
+        final InvoiceDataServiceException failure = (job.getErrorCode() == null) ? null 
+                : InvoiceDataErrorCodeEnum.valueOf(job.getErrorCode()).restoreException(job.getErrorMessage());
+        return new InvoiceDataJob(job.getJobId(), job.getSupplierId(), InvoiceDataJob.Status.valueOf(job.getStatus()), 
+                job.getSubmittedTime(), job.getStartedTime(), job.getFinishedTime(), job.getReferenceId(), failure);
+    }
+
+    /**
+     * Names worker threads, and makes them daemons not to block shutdown.
+     */
+    static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger seq = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "invoice-data-job-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -19,45 +19,77 @@
 
 package se.sll.invoicedata.core.service.impl;
 
-import static se.sll.invoicedata.core.service.impl.CoreUtil.copyProperties;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.engine.EntityKey;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import riv.sll.invoicedata._1.DiscountItem;
 import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.InvoiceData;
 import riv.sll.invoicedata._1.InvoiceDataHeader;
-import riv.sll.invoicedata._1.ReferenceItem;
 import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import riv.sll.invoicedata.listinvoicedataresponder._1.ListInvoiceDataRequest;
 import se.sll.invoicedata.core.jmx.StatusBean;
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
-import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
 import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
-import se.sll.invoicedata.core.model.entity.ReferenceItemEntity;
 import se.sll.invoicedata.core.model.repository.BusinessEventRepository;
+import se.sll.invoicedata.core.model.repository.EventAggregateRow;
+import se.sll.invoicedata.core.model.repository.InvoiceDataHeaderRow;
 import se.sll.invoicedata.core.model.repository.InvoiceDataRepository;
 import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
 import se.sll.invoicedata.core.service.InvoiceDataService;
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.service.RatingService;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 
 /**
- * Implements invoice data service.
+ * Implements invoice data service. <p>
+ * 
+ * Registration is staged, i.e. conversion, validation and rating of events run outside of any transaction 
+ * (unless the caller has one), and only the lookup of existing events and the upsert run in a short 
+ * write transaction. This keeps the connection hold time of registrations down. <p>
+ * 
+ * Query operations run in read-only transactions, i.e. with manual flush mode and entities loaded 
+ * in read-only mode, hence without snapshots and nothing to dirty-check at commit.
  * 
  * @author Peter
  *
@@ -69,9 +101,28 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
     private static final Logger log = LoggerFactory.getLogger(InvoiceDataService.class);
     private static final Logger TX_LOG = LoggerFactory.getLogger("TX-API");
 
+    // max number of ids in one fetch query
+    static final int FETCH_CHUNK_SIZE = 1000;
+    
+    // second-level cache collection roles
+    static final String ITEMS_ROLE = BusinessEventEntity.class.getName() + ".itemEntities";
+    static final String DISCOUNT_ITEMS_ROLE = BusinessEventEntity.class.getName() + ".discountItemEntities";
+
+    // assigns events to invoice data, native SQL with a query space of its own, i.e. Hibernate doesn't evict the whole 
+    // event cache region (as for a bulk HQL update), and no query on events may use the query cache
+    static final String ASSIGN_INVOICE_DATA_SQL = "UPDATE invoice_data_event SET invoice_data_id = :invoiceDataId, pending = NULL "
+            + "WHERE id IN (:ids) AND pending = :pending";
+    static final String ASSIGN_INVOICE_DATA_SPACE = "invoice_data_event_assign";
+
     @Value("${event.maxFindResultSize:30000}")
     private int eventMaxFindResultSize;
 
+    @Value("${event.maxBatchSize:1000}")
+    private int eventMaxBatchSize;
+
+    @Value("${event.acknowledgementIdChunkSize:1000}")
+    private int acknowledgementIdChunkSize;
+
     @Autowired
     private BusinessEventRepository businessEventRepository;
 
@@ -86,8 +137,21 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
     
     @Autowired
     private LockService lock;
+
+    @Autowired
+    private KnownEventIdService knownEventIds;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void registerEvent(Event event) {
         final String name = event.getEventId();
         
@@ -95,16 +159,48 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
             throw InvoiceDataErrorCodeEnum.TECHNICAL_ERROR.createException("Event \"" + name + "\" currently is updated by another user");
         }
         try {
-        	validateForAnyDuplicateDiscountItems(event);
-        	final BusinessEventEntity businessEventEntity = EntityBeanConverter.toBusinessEventEntity(event);
-        	addDiscountItemsToBusinessEventEntity(businessEventEntity, event.getDiscountItemList());
-            registerBusinessEvent(businessEventEntity, event.getDiscountItemList());
+            writeBusinessEvents(Collections.singletonList(toRatedBusinessEventEntity(event)));
+        } finally {
+            releaseAfterCompletion(Collections.singletonList(name));
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<InvoiceDataServiceException> registerEvents(final List<Event> events) {
+        if (events.size() > eventMaxBatchSize) {
+            throw InvoiceDataErrorCodeEnum.LIMIT_ERROR.createException(eventMaxBatchSize, "please split the batch of events");
+        }
+
+        final List<String> names = new ArrayList<String>(new LinkedHashSet<String>(eventIds(events)));
+        names.remove(null);
+
+        if (names.size() > 0 && !lock.acquire(names)) {
+            throw InvoiceDataErrorCodeEnum.TECHNICAL_ERROR.createException("Events \"" + names + "\" currently is updated by another user");
+        }
+        statusBean.start("InvoiceDataService.registerEvents()");
+        try {
+            final List<InvoiceDataServiceException> results = new ArrayList<InvoiceDataServiceException>(events.size());
+            final List<BusinessEventEntity> entities = new ArrayList<BusinessEventEntity>(events.size());
+            for (final Event event : events) {
+                try {
+                    entities.add(toRatedBusinessEventEntity(event));
+                    results.add(null);
+                } catch (InvoiceDataServiceException ex) {
+                    log.debug("rejected event {}: {}", event.getEventId(), ex.getMessage());
+                    results.add(ex);
+                }
+            }
+            writeBusinessEvents(entities);
+            return results;
         } finally {
-            lock.release(name);
+            releaseAfterCompletion(names);
+            statusBean.stop();
         }
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<RegisteredEvent> getAllUnprocessedBusinessEvents(
             GetInvoiceDataRequest request) {
 
@@ -120,6 +216,7 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
        // max size
         final PageRequest pageRequest = new PageRequest(0, eventMaxFindResultSize+1);
 
+        readOnlyLoading();
         if (CoreUtil.isEmpty(request.getPaymentResponsible())) {
             bEEntityList = businessEventRepository.findBySupplierIdAndPendingIsTrueAndStartTimeBetween(
                     request.getSupplierId(), dateFrom, dateTo, pageRequest);
@@ -135,9 +232,64 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
         }
         
         //No requirement to fetch list sorted by date
-        return EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(bEEntityList);
+        return EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(fetchItems(bEEntityList));
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public ResultPage<RegisteredEvent> getUnprocessedBusinessEventsPage(
+            GetInvoiceDataRequest request) {
+
+        mandatory(request.getSupplierId(), "supplierId");
+
+        final int pageSize = (request.getPageSize() == null) ? eventMaxFindResultSize : request.getPageSize();
+        if (pageSize < 1 || pageSize > eventMaxFindResultSize) {
+            throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("pageSize, out of range 1 - " + eventMaxFindResultSize + ": " + pageSize);
+        }
+
+        final Date dateFrom = CoreUtil.floorDate(CoreUtil.toDate(request.getFromDate(), CoreUtil.MIN_DATE));
+        final Date dateTo = CoreUtil.ceilDate(CoreUtil.toDate(request.getToDate(), CoreUtil.MAX_DATE));
+
+        // first page starts at the period start time
+        Date keyStartTime = dateFrom;
+        Long keyId = Long.MIN_VALUE;
+        if (request.getContinuationToken() != null) {
+            final long[] key = extractKey(request.getContinuationToken());
+            if (key[0] >= dateFrom.getTime()) {
+                keyStartTime = new Date(key[0]);
+                keyId = key[1];
+            }
+        }
+
+        // one extra to find out if there are more pages
+        final PageRequest pageRequest = new PageRequest(0, pageSize+1);
+
+        statusBean.start("InvoiceDataService.getUnprocessedBusinessEventsPage()");
+        try {
+            readOnlyLoading();
+            List<BusinessEventEntity> bEEntityList;
+            if (CoreUtil.isEmpty(request.getPaymentResponsible())) {
+                bEEntityList = businessEventRepository.findPendingBySupplierIdAfterKey(
+                        request.getSupplierId(), keyStartTime, keyId, dateTo, pageRequest);
+            } else {
+                bEEntityList = businessEventRepository.findPendingBySupplierIdAndPaymentResponsibleAfterKey(
+                        request.getSupplierId(), request.getPaymentResponsible(), 
+                        keyStartTime, keyId, dateTo, pageRequest);
+            }
+
+            String continuationToken = null;
+            if (bEEntityList.size() > pageSize) {
+                bEEntityList = bEEntityList.subList(0, pageSize);
+                final BusinessEventEntity last = bEEntityList.get(pageSize - 1);
+                continuationToken = createContinuationToken(last.getStartTime(), last.getId());
+            }
+
+            return new ResultPage<RegisteredEvent>(EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(fetchItems(bEEntityList)), continuationToken);
+        } finally {
+            statusBean.stop();
+        }
+    }
+
     @Override
     public String createInvoiceData(CreateInvoiceDataRequest createInvoiceDataRequest) {
     	
@@ -154,22 +306,24 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
         }
         statusBean.start("InvoiceDataService.createInvoiceData()");
         try {
-            final InvoiceDataEntity invoiceDataEntity = copyProperties(createInvoiceDataRequest, InvoiceDataEntity.class);
-            final List<BusinessEventEntity> entities = findByAcknowledgementIdInAndPendingIsTrue(idList);
+            final InvoiceDataEntity invoiceDataEntity = EntityBeanConverter.toInvoiceDataEntity(createInvoiceDataRequest);
+            final List<EventAggregateRow> rows = aggregatePendingByAcknowledgementIdIn(idList);
 
             getValidInvoiceDataEntity(createInvoiceDataRequest,
-					invoiceDataEntity, entities);
+					invoiceDataEntity, rows);
 
             final InvoiceDataEntity saved  = save(invoiceDataEntity);
+            assignInvoiceData(saved, idList);
 
             return saved.getReferenceId();
         } finally {
-            lock.release(idList);
+            releaseAfterCompletion(idList);
             statusBean.stop();
         }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<InvoiceDataHeader> listAllInvoiceData(ListInvoiceDataRequest request) {
         if (CoreUtil.isEmpty(request.getSupplierId()) && CoreUtil.isEmpty(request.getPaymentResponsible())) {
             throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("supplierId or paymentResponsible");
@@ -177,7 +331,7 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
 
         statusBean.start("InvoiceDataService.listAllInvoiceData()");
         try {
-            return getInvoiceDataHeader(findByCriteria(request));
+            return EntityBeanConverter.fromInvoiceDataHeaderRowToInvoiceDataHeader(findByCriteria(request, null));
 
         } finally {
             statusBean.stop();
@@ -185,8 +339,54 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public ResultPage<InvoiceDataHeader> listInvoiceDataPage(ListInvoiceDataRequest request) {
+        if (CoreUtil.isEmpty(request.getSupplierId()) && CoreUtil.isEmpty(request.getPaymentResponsible())) {
+            throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("supplierId or paymentResponsible");
+        }
+
+        final int pageSize = (request.getPageSize() == null) ? eventMaxFindResultSize : request.getPageSize();
+        if (pageSize < 1 || pageSize > eventMaxFindResultSize) {
+            throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("pageSize, out of range 1 - " + eventMaxFindResultSize + ": " + pageSize);
+        }
+
+        statusBean.start("InvoiceDataService.listInvoiceDataPage()");
+        try {
+            // one extra to find out if there are more pages
+            List<InvoiceDataHeaderRow> rows = findByCriteria(request, new PageRequest(0, pageSize+1));
+
+            String continuationToken = null;
+            if (rows.size() > pageSize) {
+                rows = rows.subList(0, pageSize);
+                final InvoiceDataHeaderRow last = rows.get(pageSize - 1);
+                continuationToken = createContinuationToken(last.getStartDate(), last.getId());
+            }
+
+            return new ResultPage<InvoiceDataHeader>(EntityBeanConverter.fromInvoiceDataHeaderRowToInvoiceDataHeader(rows), continuationToken);
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public InvoiceData getInvoiceDataByReferenceId(final String referenceId) {
-        return getInvoiceData(referenceId, invoiceDataRepository.findOne(extractId(referenceId)));
+        readOnlyLoading();
+        final InvoiceDataEntity invoiceDataEntity = invoiceDataRepository.findOne(extractId(referenceId));
+        if (invoiceDataEntity != null) {
+            fetchItems(notCached(invoiceDataEntity.getBusinessEventEntities()));
+        }
+        return getInvoiceData(referenceId, invoiceDataEntity);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getSupplierIdByReferenceId(final String referenceId) {
+        final String supplierId = invoiceDataRepository.findSupplierIdById(extractId(referenceId));
+        if (supplierId == null) {
+            throw InvoiceDataErrorCodeEnum.NOTFOUND_ERROR.createException("invoice data", referenceId);
+        }
+        return supplierId;
     }
     
     //
@@ -207,12 +407,124 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
         return this;
     }
 
-    private void registerBusinessEvent(final BusinessEventEntity newEntity, List<DiscountItem> discountItemList) {
-        rate(validateBusinessEventWithItemList(newEntity), discountItemList);
+    //
+    private BusinessEventEntity toRatedBusinessEventEntity(final Event event) {
+        validateForAnyDuplicateDiscountItems(event);
+        final BusinessEventEntity businessEventEntity = EntityBeanConverter.toBusinessEventEntity(event);
+        addDiscountItemsToBusinessEventEntity(businessEventEntity, event.getDiscountItemList());
+        rate(validateBusinessEventWithItemList(businessEventEntity), event.getDiscountItemList());
+        businessEventEntity.setContentHash(ContentHash.of(businessEventEntity));
+        return businessEventEntity;
+    }
+
+    //
+    private static List<String> eventIds(final List<Event> events) {
+        final List<String> eventIds = new ArrayList<String>(events.size());
+        for (final Event event : events) {
+            eventIds.add(event.getEventId());
+        }
+        return eventIds;
+    }
+
+    // locks are kept until a transaction started by this call has completed, otherwise the next lock holder
+    // might read state not yet committed
+    private void releaseAfterCompletion(final List<String> names) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && isNewTransaction()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.release(names);
+                }
+            });
+        } else {
+            lock.release(names);
+        }
+    }
+
+    //
+    private static boolean isNewTransaction() {
+        try {
+            return TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        } catch (NoTransactionException e) {
+            return false;
+        }
+    }
+
+    // the write stage, i.e. joins the caller's transaction or runs in a short transaction of its own
+    private void writeBusinessEvents(final List<BusinessEventEntity> newEntities) {
+        if (newEntities.isEmpty()) {
+            return;
+        }
+        statusBean.start("InvoiceDataService.writeBusinessEvents()");
+        try {
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    registerBusinessEvents(newEntities);
+                }
+            });
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    /**
+     * Registers rated business events, existing events (pending and credit candidates) are looked up with 
+     * one query for the whole batch, and only for event ids that might be known, i.e. brand new events 
+     * are not looked up at all. <p>
+     * 
+     * Events occurring more than once are registered in order, i.e. the last one is kept as the pending event.
+     * 
+     * @param newEntities the rated business events.
+     */
+    private void registerBusinessEvents(final List<BusinessEventEntity> newEntities) {
+        if (newEntities.isEmpty()) {
+            return;
+        }
+        final List<String> eventIds = new ArrayList<String>(newEntities.size());
+        for (final BusinessEventEntity newEntity : newEntities) {
+            if (knownEventIds.mightExist(newEntity.getEventId())) {
+                eventIds.add(newEntity.getEventId());
+            }
+        }
 
-        final BusinessEventEntity oldEntity = businessEventRepository.findByEventIdAndPendingIsTrueAndCreditIsNull(newEntity.getEventId());
-        final BusinessEventEntity creditCandidate = businessEventRepository.findByEventIdAndPendingIsNullAndCreditedIsNullAndCreditIsNull(newEntity.getEventId());
+        final Map<String, BusinessEventEntity> oldEntities = new HashMap<String, BusinessEventEntity>();
+        final Map<String, BusinessEventEntity> creditCandidates = new HashMap<String, BusinessEventEntity>();
+        if (eventIds.size() > 0) {
+            for (final BusinessEventEntity entity : findRegistrationCandidates(eventIds)) {
+                (entity.isPending() ? oldEntities : creditCandidates).put(entity.getEventId(), entity);
+            }
+        }
+
+        for (final BusinessEventEntity newEntity : newEntities) {
+            final BusinessEventEntity oldEntity = oldEntities.get(newEntity.getEventId());
+            if (isUnchanged(oldEntity, newEntity) && !creditCandidates.containsKey(newEntity.getEventId())) {
+                TX_LOG.info("Event(id:" + newEntity.getEventId() + "), acknowledgementId:" + newEntity.getAcknowledgementId() 
+                        + " is unchanged, i.e. already registered");
+                continue;
+            }
+            // a candidate is credited once, and a new entity replaces any previous one in the same batch
+            oldEntities.put(newEntity.getEventId(), newEntity);
+            registerBusinessEvent(newEntity, oldEntity, creditCandidates.remove(newEntity.getEventId()));
+        }
+    }
+
+    // an identical re-registration of a pending event, i.e. nothing to delete or insert
+    private static boolean isUnchanged(final BusinessEventEntity oldEntity, final BusinessEventEntity newEntity) {
+        return oldEntity != null && oldEntity.getContentHash() != null && oldEntity.getContentHash().equals(newEntity.getContentHash());
+    }
+
+    //
+    private List<BusinessEventEntity> findRegistrationCandidates(final List<String> eventIds) {
+        statusBean.start("InvoiceDataService.findRegistrationCandidates()");
+        try {
+            return businessEventRepository.findRegistrationCandidatesByEventIdIn(eventIds);
+        } finally {
+            statusBean.stop();
+        }
+    }
 
+    private void registerBusinessEvent(final BusinessEventEntity newEntity, final BusinessEventEntity oldEntity, final BusinessEventEntity creditCandidate) {
         if (oldEntity != null) {
             TX_LOG.info("Deleting previous event(id:" + oldEntity.getEventId() + "), acknowledgementId: " + oldEntity.getAcknowledgementId() 
                     + " to register the updated event with acknowledgementId:" + newEntity.getAcknowledgementId());
@@ -220,6 +532,7 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
         }
         TX_LOG.info("Registered an event(id:" + newEntity.getEventId() + "), acknowledgementId:" + newEntity.getAcknowledgementId());
         save(newEntity);
+        knownEventIds.add(newEntity.getEventId());
 
         if (creditCandidate != null) {
             TX_LOG.info("Event already exists! A credit/debit will be triggered on the invoiced data");
@@ -251,25 +564,184 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
     private void addDiscountItemsToBusinessEventEntity(BusinessEventEntity businessEventEntity, List<DiscountItem> discountItemList) {
     	if (CoreUtil.ifDiscountItemExists(discountItemList)) {
 	    	for (DiscountItem discountItem : discountItemList) {
-	    		DiscountItemEntity discountItemEntity = CoreUtil.copyProperties(discountItem, DiscountItemEntity.class);
-	    		for (ReferenceItem referenceItem : discountItem.getReferenceItemList()) {
-	    			ReferenceItemEntity referenceItemEntity = CoreUtil.copyProperties(referenceItem, ReferenceItemEntity.class);
-	    			discountItemEntity.addReferenceItemEntity(referenceItemEntity);
-	    		}
-	    		businessEventEntity.addDiscountItemEntity(discountItemEntity);    		
+	    		businessEventEntity.addDiscountItemEntity(EntityBeanConverter.toDiscountItemEntity(discountItem));
 	    	}
     	}
     }
 
-    private List<BusinessEventEntity> findByAcknowledgementIdInAndPendingIsTrue(final List<String> list) {
-        statusBean.start("InvoiceDataService.findByAcknowledgementIdInAndPendingIsTrue()");
+    /**
+     * Fetches items, discount items and reference items of events with a constant number of 
+     * queries (per chunk of events), rather than lazily one event at a time.
+     * 
+     * @param entities the events.
+     * @return the same events, with all children loaded.
+     */
+    private List<BusinessEventEntity> fetchItems(final List<BusinessEventEntity> entities) {
+        statusBean.start("InvoiceDataService.fetchItems()");
         try {
-            return businessEventRepository.findByAcknowledgementIdInAndPendingIsTrue(list);
+            final List<Long> ids = new ArrayList<Long>(entities.size());
+            for (final BusinessEventEntity entity : entities) {
+                ids.add(entity.getId());
+            }
+            for (final List<Long> chunk : CoreUtil.partition(ids, FETCH_CHUNK_SIZE)) {
+                businessEventRepository.fetchItemEntities(chunk);
+                businessEventRepository.fetchDiscountItemEntities(chunk);
+                businessEventRepository.fetchReferenceItemEntities(chunk);
+            }
+            return entities;
         } finally {
             statusBean.stop();
         }
     }
 
+    // entities loaded from now on are read-only (no snapshots), but only when not joining a read-write transaction
+    private void readOnlyLoading() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            entityManager.unwrap(Session.class).setDefaultReadOnly(true);
+        }
+    }
+
+    // returns events with items or discount items not in the second-level cache, i.e. to be fetched from database
+    private List<BusinessEventEntity> notCached(final List<BusinessEventEntity> entities) {
+        final Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+        final List<BusinessEventEntity> list = new ArrayList<BusinessEventEntity>(entities.size());
+        for (final BusinessEventEntity entity : entities) {
+            if (!cache.containsCollection(ITEMS_ROLE, entity.getId()) || !cache.containsCollection(DISCOUNT_ITEMS_ROLE, entity.getId())) {
+                list.add(entity);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns aggregated values of the pending events matching the acknowledgement ids, grouped by supplier, 
+     * payment responsible and credit flag. <p>
+     * 
+     * Events without a stored total amount (not yet back-filled) gets it calculated and stored first.
+     */
+    private List<EventAggregateRow> aggregatePendingByAcknowledgementIdIn(final List<String> list) {
+        statusBean.start("InvoiceDataService.aggregatePendingByAcknowledgementIdIn()");
+        try {
+            final List<EventAggregateRow> rows = new ArrayList<EventAggregateRow>();
+            for (final List<String> chunk : CoreUtil.partition(list, acknowledgementIdChunkSize)) {
+                rows.addAll(aggregatePendingChunk(chunk));
+            }
+            return rows;
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    // aggregates one chunk of acknowledgement ids
+    private List<EventAggregateRow> aggregatePendingChunk(final List<String> chunk) {
+        statusBean.start("InvoiceDataService.aggregatePendingChunk()");
+        try {
+            final List<EventAggregateRow> rows = businessEventRepository.aggregatePendingByAcknowledgementIdIn(chunk);
+            if (isAmountStored(rows)) {
+                return rows;
+            }
+            storeTotalAmounts(chunk);
+            return businessEventRepository.aggregatePendingByAcknowledgementIdIn(chunk);
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    // returns if all aggregated events have a stored total amount
+    private static boolean isAmountStored(final List<EventAggregateRow> rows) {
+        for (final EventAggregateRow row : rows) {
+            if (row.getAmountCount() < row.getCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // calculates and stores total amounts of pending events missing it
+    private void storeTotalAmounts(final List<String> acknowledgementIdList) {
+        final List<BusinessEventEntity> entities = businessEventRepository.findByAcknowledgementIdInAndPendingIsTrueAndTotalAmountIsNull(acknowledgementIdList);
+        for (final BusinessEventEntity entity : fetchItems(entities)) {
+            entity.updateTotalAmount();
+        }
+        businessEventRepository.flush();
+    }
+
+    /**
+     * Assigns the pending events matching the acknowledgement ids to a saved invoice data with set-based updates, i.e. 
+     * without loading the events.
+     */
+    private void assignInvoiceData(final InvoiceDataEntity invoiceDataEntity, final List<String> list) {
+        statusBean.start("InvoiceDataService.assignInvoiceData()");
+        try {
+            int updated = 0;
+            for (final List<String> chunk : CoreUtil.partition(list, acknowledgementIdChunkSize)) {
+                updated += assignInvoiceDataChunk(invoiceDataEntity, chunk);
+            }
+            if (updated != list.size()) {
+                throw InvoiceDataErrorCodeEnum.TECHNICAL_ERROR.createException("given event list doesn't match database state! entities updated: " + updated + ", request contains: " + list.size());
+            }
+            // the list of events is reloaded when accessed later on
+            entityManager.detach(invoiceDataEntity);
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    // assigns one chunk of acknowledgement ids, and evicts the updated events only
+    private int assignInvoiceDataChunk(final InvoiceDataEntity invoiceDataEntity, final List<String> chunk) {
+        statusBean.start("InvoiceDataService.assignInvoiceDataChunk()");
+        try {
+            final List<Long> ids = businessEventRepository.findIdByAcknowledgementIdInAndPendingIsTrue(chunk);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            final Session session = entityManager.unwrap(Session.class);
+            final int updated = session.createSQLQuery(ASSIGN_INVOICE_DATA_SQL)
+                    .addSynchronizedQuerySpace(ASSIGN_INVOICE_DATA_SPACE)
+                    .setLong("invoiceDataId", invoiceDataEntity.getId())
+                    .setParameterList("ids", ids)
+                    .setBoolean("pending", true)
+                    .executeUpdate();
+            evictEvents(session, ids);
+            return updated;
+        } finally {
+            statusBean.stop();
+        }
+    }
+
+    // detaches updated events from the persistence context, and evicts them from the second-level cache now and when the 
+    // transaction completes (the state before the update might have been cached by other transactions in the meantime)
+    private void evictEvents(final Session session, final List<Long> ids) {
+        final Set<Long> updated = new HashSet<Long>(ids);
+        final List<Object> managed = new ArrayList<Object>();
+        for (final Object key : session.getStatistics().getEntityKeys()) {
+            final EntityKey entityKey = (EntityKey) key;
+            if (BusinessEventEntity.class.getName().equals(entityKey.getEntityName()) && updated.contains(entityKey.getIdentifier())) {
+                managed.add(session.get(BusinessEventEntity.class, entityKey.getIdentifier()));
+            }
+        }
+        for (final Object entity : managed) {
+            session.evict(entity);
+        }
+        evictCachedEvents(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictCachedEvents(ids);
+                }
+            });
+        }
+    }
+
+    //
+    private void evictCachedEvents(final List<Long> ids) {
+        final Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+        for (final Long id : ids) {
+            cache.evictEntity(BusinessEventEntity.class, id);
+        }
+    }
+
     private InvoiceDataEntity save(InvoiceDataEntity invoiceDataEntity) {
         statusBean.start("InvoiceDataService.save()");
         try {
@@ -282,36 +754,41 @@ public class InvoiceDataServiceImpl extends InvoiceDataBaseService implements In
     }
 
     /**
-     * Finds by criteria: supplierId, paymentResponsible or date range
+     * Finds header rows by criteria: supplierId, paymentResponsible or date range, ordered by start date.
      * Date: fromDate - if null then 1970 01 01
      * toDate: - if null then current year + 100 years
      * @param request
-     * @return List<InvoiceDataEntity>
+     * @param pageable the page size, or null for all rows.
+     * @return List<InvoiceDataHeaderRow>
      */
-    private List<InvoiceDataEntity> findByCriteria(ListInvoiceDataRequest request) {
+    private List<InvoiceDataHeaderRow> findByCriteria(ListInvoiceDataRequest request, Pageable pageable) {
 
         statusBean.start("InvoiceDataService.findByCriteria()");
         try {
             final Date dateFrom = CoreUtil.floorDate(CoreUtil.toDate(request.getFromDate(), CoreUtil.MIN_DATE));
             final Date dateTo = CoreUtil.ceilDate(CoreUtil.toDate(request.getToDate(), CoreUtil.MAX_DATE));
-            
-            List<InvoiceDataEntity> invoiceDataEntityList = new ArrayList<InvoiceDataEntity>();
 
+            // first page starts at the earliest possible start date
+            Date keyStartDate = CoreUtil.MIN_DATE;
+            Long keyId = Long.MIN_VALUE;
+            if (request.getContinuationToken() != null) {
+                final long[] key = extractKey(request.getContinuationToken());
+                keyStartDate = new Date(key[0]);
+                keyId = key[1];
+            }
+            
             if (request.getSupplierId() != null && request.getPaymentResponsible() != null) {            	
-                invoiceDataEntityList = invoiceDataRepository.getInvoiceDataBySupplierIdAndPaymentResponsibleBetweenDates(
-                        request.getSupplierId(),
-                        request.getPaymentResponsible(),
-                        dateFrom, dateTo);
-            } else  if (request.getSupplierId() != null) {            	
-                invoiceDataEntityList = invoiceDataRepository.getInvoiceDataBySupplierIdBetweenDates(
-                        request.getSupplierId(),
-                        dateFrom, dateTo);
+                return invoiceDataRepository.findHeaderRowsBySupplierIdAndPaymentResponsibleAfterKey(
+                        request.getSupplierId(), request.getPaymentResponsible(),
+                        dateFrom, dateTo, keyStartDate, keyId, pageable);
+            } else if (request.getSupplierId() != null) {            	
+                return invoiceDataRepository.findHeaderRowsBySupplierIdAfterKey(
+                        request.getSupplierId(), dateFrom, dateTo, keyStartDate, keyId, pageable);
             } else if (request.getPaymentResponsible() != null) {
-                invoiceDataEntityList = invoiceDataRepository.getInvoiceDataByPaymentResponsibleBetweenDates(
-                        request.getPaymentResponsible(),
-                        dateFrom, dateTo);
+                return invoiceDataRepository.findHeaderRowsByPaymentResponsibleAfterKey(
+                        request.getPaymentResponsible(), dateFrom, dateTo, keyStartDate, keyId, pageable);
             }
-            return invoiceDataEntityList;
+            return new ArrayList<InvoiceDataHeaderRow>();
         } finally {
             statusBean.stop();
         }
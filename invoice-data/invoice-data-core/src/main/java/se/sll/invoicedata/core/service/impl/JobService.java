@@ -22,27 +22,47 @@ package se.sll.invoicedata.core.service.impl;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import se.sll.invoicedata.core.jmx.StatusBean;
-import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.repository.BusinessEventRepository;
 import se.sll.invoicedata.core.model.repository.InvoiceDataRepository;
 import se.sll.invoicedata.core.service.OperationAccessConfigService;
 
 /**
- * Runs service batch jobs.
+ * Runs service batch jobs. <p>
+ * 
+ * Old invoice data is purged in chunks, i.e. each chunk of invoice data together with its events, items, 
+ * discount items and reference items is removed with set-based statements in a transaction of its own. 
+ * Progress of the purge is exposed over JMX. <p>
+ * 
+ * Stored total amounts of events registered before the amounts were persisted are backfilled once, 
+ * by the first batch job or on demand over JMX.
  * 
  * @author Peter
  *
  */
 @Service
+@ManagedResource(objectName = "se.sll.invoicedata:name=JobService", description="Batch jobs")
 public class JobService {
 
     private static final Logger log = LoggerFactory.getLogger(JobService.class);
@@ -50,14 +70,39 @@ public class JobService {
     @Autowired
     private InvoiceDataRepository invoiceDataRepository;
     
+    @Autowired
+    private BusinessEventRepository businessEventRepository;
+    
     @Autowired
     private OperationAccessConfigService hsaSupplierMappingService;
     
     @Autowired
     private StatusBean statusBean;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Value("${invoicedata.monthTTL:0}")
     private int invoiceDataTTL;
+    
+    @Value("${invoicedata.purgeBatchSize:100}")
+    private int purgeBatchSize;
+    
+    @Value("${invoicedata.backfillBatchSize:500}")
+    private int backfillBatchSize;
+    
+    // purge progress
+    private volatile boolean purgeRunning;
+    private volatile Date purgeStarted;
+    private volatile Date purgeFinished;
+    private final AtomicLong purgedInvoiceData = new AtomicLong();
+    private final AtomicLong purgedEvents = new AtomicLong();
+    private final AtomicLong purgedItems = new AtomicLong();
+    private final AtomicLong purgedChunks = new AtomicLong();
+    
+    // backfill progress
+    private volatile boolean backfillCompleted;
+    private final AtomicLong backfilledEvents = new AtomicLong();
 
     @Scheduled(cron="${job.cron}")
     public void batchJob() {
@@ -69,6 +114,19 @@ public class JobService {
         	log.error("Problem reloading cached data " + e.getMessage());
         }
         
+        if (!backfillCompleted) {
+            try {
+                backfillTotalAmounts();
+            } catch (Exception e) {
+                log.error("Problem backfilling total amounts " + e.getMessage());
+            }
+        }
+        
+        if (invoiceDataTTL <= 0) {
+            log.info("Parameter invoicedata.monthTTL is zero, i.e. life-cycle management of old data has been disabled");
+            return;
+        }
+
         final Calendar cal = Calendar.getInstance();
         cal.add(Calendar.MONTH, (-1 * invoiceDataTTL));
         cal.set(Calendar.HOUR_OF_DAY, 0);
@@ -84,15 +142,174 @@ public class JobService {
         }
     }
 
-    @Transactional
-    private void removeOldData(final Date maxDate) {
-        if (invoiceDataTTL <= 0) {
-            log.info("Parameter invoicedata.monthTTL is zero, i.e. life-cycle management of old data has been disabled");
-            return;
+    /**
+     * Removes invoice data with an end date before maxDate, one chunk at a time.
+     * 
+     * @param maxDate the max date.
+     * @return the number of removed invoice data items.
+     */
+    long removeOldData(final Date maxDate) {
+        log.info("Remove invoice data older than: {}", maxDate);
+        
+        purgeRunning = true;
+        purgeStarted = new Date();
+        purgeFinished = null;
+        purgedInvoiceData.set(0L);
+        purgedEvents.set(0L);
+        purgedItems.set(0L);
+        purgedChunks.set(0L);
+        
+        final TransactionTemplate template = new TransactionTemplate(transactionManager);
+        try {
+            int n;
+            do {
+                statusBean.start("JobService.removeOldDataChunk()");
+                try {
+                    n = template.execute(new TransactionCallback<Integer>() {
+                        @Override
+                        public Integer doInTransaction(TransactionStatus status) {
+                            return removeOldDataChunk(maxDate);
+                        }
+                    });
+                } finally {
+                    statusBean.stop();
+                }
+            } while (n > 0);
+        } finally {
+            purgeRunning = false;
+            purgeFinished = new Date();
         }
-        final List<InvoiceDataEntity> list = invoiceDataRepository.findByEndDateLessThan(maxDate);
-        log.info("Remove invoice data older than: {}, count: {}", maxDate, list.size());
-        invoiceDataRepository.delete(list);
+        
+        log.info("Removed invoice data: {}, events: {}, items: {}", 
+                new Object[] { purgedInvoiceData.get(), purgedEvents.get(), purgedItems.get() });
+        
+        return purgedInvoiceData.get();
+    }
+    
+    // removes one chunk of invoice data and dependent rows, and returns the number of removed invoice data items
+    private int removeOldDataChunk(final Date maxDate) {
+        final List<Long> ids = invoiceDataRepository.findIdByEndDateLessThan(maxDate, new PageRequest(0, purgeBatchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        long items = invoiceDataRepository.deleteReferenceItemsByInvoiceDataIdIn(ids);
+        items += invoiceDataRepository.deleteDiscountItemsByInvoiceDataIdIn(ids);
+        items += invoiceDataRepository.deleteItemsByInvoiceDataIdIn(ids);
+        final int events = invoiceDataRepository.deleteEventsByInvoiceDataIdIn(ids);
+        final int n = invoiceDataRepository.deleteByIdIn(ids);
+        
+        purgedItems.addAndGet(items);
+        purgedEvents.addAndGet(events);
+        purgedInvoiceData.addAndGet(n);
+        purgedChunks.incrementAndGet();
+        log.debug("Removed chunk of invoice data: {}, events: {}", n, events);
+        
+        return n;
     }
 
+    /**
+     * Calculates and stores total amounts of events without one, one chunk at a time.
+     * 
+     * @return the number of updated events.
+     */
+    @ManagedOperation(description="Calculates and stores total amounts of events registered before amounts were stored")
+    public long backfillTotalAmounts() {
+        final TransactionTemplate template = new TransactionTemplate(transactionManager);
+        long total = 0L;
+        int n;
+        do {
+            statusBean.start("JobService.backfillTotalAmountsChunk()");
+            try {
+                n = template.execute(new TransactionCallback<Integer>() {
+                    @Override
+                    public Integer doInTransaction(TransactionStatus status) {
+                        return backfillTotalAmountsChunk();
+                    }
+                });
+            } finally {
+                statusBean.stop();
+            }
+            total += n;
+        } while (n > 0);
+        
+        backfillCompleted = true;
+        if (total > 0) {
+            log.info("Backfilled total amounts of events: {}", total);
+        }
+        return total;
+    }
+
+    // updates one chunk of events, and returns the number of updated events
+    private int backfillTotalAmountsChunk() {
+        final List<Long> ids = businessEventRepository.findIdByTotalAmountIsNull(new PageRequest(0, backfillBatchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        final List<BusinessEventEntity> entities = businessEventRepository.fetchItemEntities(ids);
+        businessEventRepository.fetchDiscountItemEntities(ids);
+        businessEventRepository.fetchReferenceItemEntities(ids);
+        for (final BusinessEventEntity entity : entities) {
+            entity.updateTotalAmount();
+        }
+        businessEventRepository.flush();
+        backfilledEvents.addAndGet(entities.size());
+        return entities.size();
+    }
+
+    @ManagedAttribute(description="Returns if backfill of event total amounts has completed")
+    public boolean isBackfillCompleted() {
+        return backfillCompleted;
+    }
+
+    @ManagedMetric(category="backfill", displayName="Events with total amounts backfilled", metricType=MetricType.COUNTER, unit="event")
+    public long getBackfilledEvents() {
+        return backfilledEvents.get();
+    }
+
+    @ManagedAttribute(description="Returns if purge of old data is running")
+    public boolean isPurgeRunning() {
+        return purgeRunning;
+    }
+    
+    @ManagedAttribute(description="Returns start time of the last purge of old data")
+    public Date getPurgeStarted() {
+        return purgeStarted;
+    }
+
+    @ManagedAttribute(description="Returns finish time of the last purge of old data, null if it's running")
+    public Date getPurgeFinished() {
+        return purgeFinished;
+    }
+
+    @ManagedMetric(category="purge", displayName="Invoice data removed by current or last purge", metricType=MetricType.COUNTER, unit="invoice data")
+    public long getPurgedInvoiceData() {
+        return purgedInvoiceData.get();
+    }
+
+    @ManagedMetric(category="purge", displayName="Events removed by current or last purge", metricType=MetricType.COUNTER, unit="event")
+    public long getPurgedEvents() {
+        return purgedEvents.get();
+    }
+
+    @ManagedMetric(category="purge", displayName="Items, discount items and reference items removed by current or last purge", metricType=MetricType.COUNTER, unit="item")
+    public long getPurgedItems() {
+        return purgedItems.get();
+    }
+
+    @ManagedMetric(category="purge", displayName="Chunks (transactions) completed by current or last purge", metricType=MetricType.COUNTER, unit="chunk")
+    public long getPurgedChunks() {
+        return purgedChunks.get();
+    }
+
+    @ManagedAttribute(description="Sets the max number of invoice data items to remove in one transaction", defaultValue="100")
+    public void setPurgeBatchSize(@ManagedOperationParameter(name="purgeBatchSize", description="Indicates max number of invoice data items to remove in one transaction") int purgeBatchSize) {
+        if (purgeBatchSize > 0) {
+            this.purgeBatchSize = purgeBatchSize;
+        }
+    }
+
+    @ManagedAttribute(description="Returns the max number of invoice data items to remove in one transaction")
+    public int getPurgeBatchSize() {
+        return purgeBatchSize;
+    }
 }
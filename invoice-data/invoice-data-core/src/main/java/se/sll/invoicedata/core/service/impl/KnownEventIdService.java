@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import se.sll.invoicedata.core.model.repository.BusinessEventRepository;
+
+/**
+ * Keeps track of known event ids with a Bloom filter, i.e. registration of brand new events 
+ * may skip the database lookup of existing events. <p>
+ * 
+ * The filter is built from the database by a background thread at startup, and maintained when events 
+ * are saved. Until the first build has completed, all event ids are considered as possibly known. The filter 
+ * is rebuilt according to <code>event.knownIdFilterRebuildCron</code> (purged events are never removed from 
+ * a filter), and resized when more ids than expected have been added, i.e. the false positive rate is kept 
+ * down. The current filter is in use until a rebuilt one has replaced it. <p>
+ * 
+ * Event ids are compared as by the database, i.e. case insensitive and trailing spaces ignored (MySQL default 
+ * collation). Ids with other than ASCII characters (might be equal to other ids with accents etc.) are always 
+ * considered as possibly known. <p>
+ * 
+ * The filter is disabled (all event ids are possibly known) when <code>event.knownIdFilterSize</code> is zero, 
+ * or when several nodes are registering events, i.e. <code>lock.backend = database</code>, since a node 
+ * doesn't see events saved by other nodes.
+ * 
+ * @author Peter
+ *
+ */
+@Service
+public class KnownEventIdService {
+
+    private static final Logger log = LoggerFactory.getLogger(KnownEventIdService.class);
+
+    // number of primary keys to scan per query when rebuilding
+    static final long REBUILD_CHUNK_SIZE = 10000L;
+
+    static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Autowired
+    private BusinessEventRepository businessEventRepository;
+
+    @Value("${event.knownIdFilterSize:10000000}")
+    private long expectedEventIds;
+
+    @Value("${lock.backend:local}")
+    private String lockBackend;
+
+    private volatile boolean enabled;
+    // in use when ready
+    private volatile BloomFilter filter;
+    // being rebuilt, i.e. ids are added to both filters until the rebuilt one replaces the current one
+    private volatile BloomFilter next;
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        if (expectedEventIds <= 0 || LockService.DATABASE_BACKEND.equals(lockBackend)) {
+            log.info("Known event id filter is disabled");
+            return;
+        }
+        enabled = true;
+        startRebuild(expectedEventIds);
+    }
+
+    @Scheduled(cron="${event.knownIdFilterRebuildCron:0 0 3 * * ?}")
+    public void scheduledRebuild() {
+        final BloomFilter f = filter;
+        if (enabled && f != null) {
+            startRebuild(Math.max(expectedEventIds, 2 * f.insertions()));
+        }
+    }
+
+    /**
+     * Returns if an event with this event id might exist.
+     * 
+     * @param eventId the event id.
+     * @return false if no such event exists, true if it might exist.
+     */
+    public boolean mightExist(final String eventId) {
+        final String key = key(eventId);
+        return !ready || key == null || filter.mightContain(key);
+    }
+
+    /**
+     * Adds the event id of a saved event.
+     * 
+     * @param eventId the event id.
+     */
+    public void add(final String eventId) {
+        final String key = key(eventId);
+        if (!enabled || key == null) {
+            return;
+        }
+        put(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a rebuild started before the commit doesn't see the event, i.e. the id is put once again when committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    put(key);
+                }
+            });
+        }
+        final BloomFilter f = filter;
+        if (ready && f.isOverfilled()) {
+            startRebuild(2 * f.insertions());
+        }
+    }
+
+    //
+    public boolean isReady() {
+        return ready;
+    }
+
+    // the event id as compared by the database, or null if not only ASCII characters
+    static String key(final String eventId) {
+        int end = eventId.length();
+        while (end > 0 && eventId.charAt(end - 1) == ' ') {
+            end--;
+        }
+        final char[] key = new char[end];
+        for (int i = 0; i < end; i++) {
+            final char c = eventId.charAt(i);
+            if (c > 127) {
+                return null;
+            }
+            key[i] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return new String(key);
+    }
+
+    // puts a key to the current filter and to the one being rebuilt, unless already there (not to count it twice)
+    private void put(final String key) {
+        final BloomFilter f = filter;
+        final BloomFilter n = next;
+        putIfAbsent(n, key);
+        if (f != n) {
+            putIfAbsent(f, key);
+        }
+    }
+
+    //
+    private static void putIfAbsent(final BloomFilter f, final String key) {
+        if (f != null && !f.mightContain(key)) {
+            f.put(key);
+        }
+    }
+
+    // rebuilds the filter in a background thread, unless already rebuilding
+    private void startRebuild(final long expected) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebuild(expected);
+                } finally {
+                    rebuilding.set(false);
+                }
+            }
+        }, "invoice-data-known-event-ids");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // events saved during the rebuild are added by the registration, i.e. the scan just adds all committed before
+    void rebuild(final long expected) {
+        final long start = System.currentTimeMillis();
+        final BloomFilter rebuilt = new BloomFilter(expected, FALSE_POSITIVE_PROBABILITY);
+        next = rebuilt;
+        try {
+            final Long maxId = businessEventRepository.findMaxId();
+            long n = 0;
+            for (long fromId = 0; maxId != null && fromId < maxId; fromId += REBUILD_CHUNK_SIZE) {
+                for (final String eventId : businessEventRepository.findEventIdsByIdRange(fromId, fromId + REBUILD_CHUNK_SIZE)) {
+                    final String key = key(eventId);
+                    if (key != null) {
+                        putIfAbsent(rebuilt, key);
+                    }
+                    n++;
+                }
+            }
+            filter = rebuilt;
+            ready = true;
+            log.info("Known event id filter rebuilt with {} events ({} bits) in {} ms", 
+                    new Object[] { n, rebuilt.bitSize(), System.currentTimeMillis() - start });
+        } catch (Throwable throwable) {
+            log.error("Unable to rebuild known event id filter, " + (ready ? "the current one is kept" : "all events are looked up"), throwable);
+        } finally {
+            next = null;
+        }
+    }
+}
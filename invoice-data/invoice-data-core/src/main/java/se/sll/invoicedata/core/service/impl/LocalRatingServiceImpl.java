@@ -21,12 +21,17 @@ package se.sll.invoicedata.core.service.impl;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
@@ -34,11 +39,15 @@ import se.sll.invoicedata.core.model.entity.PriceEntity;
 import se.sll.invoicedata.core.model.entity.PriceListEntity;
 import se.sll.invoicedata.core.model.repository.PriceListRepository;
 import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.service.RatingService;
 
 /**
- * Note: To avoid breaking the build, this implementation generates test data if no price list is found. Shall be fixed 
- *  as soon as test-data has been aligned.
+ * Rates items from an in-memory {@link PriceIndex} of all price lists. <p>
+ * 
+ * The index is built on demand and replaced when a transaction changing price lists commits. Within such 
+ * a transaction, items are rated directly from the price list repository to make uncommitted changes visible. 
+ * Rating doesn't start a transaction of its own, i.e. registrations rate events before the write transaction.
  *  
  * @author Peter
  *
@@ -48,24 +57,90 @@ public class LocalRatingServiceImpl implements RatingService {
 
     private static final Logger log = LoggerFactory.getLogger(RatingService.class);
 
+    // transaction resource key, bound when price lists are changed in the current transaction
+    private static final Object PRICE_LISTS_CHANGED = new Object();
+
     @Autowired
     private PriceListRepository priceListRepository;
 
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile PriceIndex priceIndex;
+
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true, noRollbackFor = InvoiceDataServiceException.class)
     public BigDecimal rate(ItemEntity itemEntity) {
+        final BigDecimal price = TransactionSynchronizationManager.hasResource(PRICE_LISTS_CHANGED) 
+                ? lookupPrice(itemEntity) 
+                : getPriceIndex().lookup(itemEntity.getEvent().getSupplierId(), 
+                        itemEntity.getEvent().getServiceCode(), 
+                        itemEntity.getEvent().getStartTime(), 
+                        itemEntity.getItemId());
+        if (price != null) {
+            log.debug("rating: found price {} for item {}", price, itemEntity);
+            return price;
+        }
+        log.error("No price information (zero) found for item {}", itemEntity);
+        throw InvoiceDataErrorCodeEnum.NOTFOUND_ERROR.createException("No price information (zero) found for item", itemEntity.getItemId());
+    }
+
+    @Override
+    public void priceListsChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(PRICE_LISTS_CHANGED)) {
+            TransactionSynchronizationManager.bindResource(PRICE_LISTS_CHANGED, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PRICE_LISTS_CHANGED);
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        invalidate();
+                    }
+                }
+            });
+        }
+    }
+
+    //
+    void invalidate() {
+        generation.incrementAndGet();
+        log.debug("rating: price index invalidated");
+    }
+
+    //
+    PriceIndex getPriceIndex() {
+        final PriceIndex index = priceIndex;
+        if (index != null && index.getGeneration() == generation.get()) {
+            return index;
+        }
+        synchronized (this) {
+            if (priceIndex != null && priceIndex.getGeneration() == generation.get()) {
+                return priceIndex;
+            }
+            // a change committed while building is detected by the generation, and causes yet another rebuild
+            final long g = generation.get();
+            final List<Object[]> rows = priceListRepository.findAllPrices();
+            priceIndex = PriceIndex.build(g, rows);
+            log.debug("rating: price index built with {} prices", rows.size());
+            return priceIndex;
+        }
+    }
+
+    //
+    protected BigDecimal lookupPrice(ItemEntity itemEntity) {
         final PriceListEntity priceListEntity = lookupPriceList(itemEntity.getEvent());
         if (priceListEntity != null) {
             for (final PriceEntity priceEntity : priceListEntity.getPriceEntities()) {
                 if (priceEntity.getItemId().equals(itemEntity.getItemId())) {
-                    log.debug("rating: found price {} for item {}", priceEntity.getPrice(), itemEntity);
                     return priceEntity.getPrice();
                 }
             }
         }
-        log.error("No price information (zero) found for item {}", itemEntity);
-        throw InvoiceDataErrorCodeEnum.NOTFOUND_ERROR.createException("No price information (zero) found for item", itemEntity.getItemId());
+        return null;
     }
 
     //
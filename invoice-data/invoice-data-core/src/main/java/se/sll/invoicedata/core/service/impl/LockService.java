@@ -19,15 +19,27 @@
 
 package se.sll.invoicedata.core.service.impl;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
- * Single node simple lock service, please note that this has to be coordinated by central resource as a database or similar to support scale out 
- * of application to several multiple servers.
+ * Lock service, locks are held in a concurrent map and acquiring several locks is an all-or-nothing operation. <p>
+ * 
+ * In order to scale out the application to several servers the locks must also be coordinated by a central resource, 
+ * and this is enabled with the property <code>lock.backend = database</code>, see {@link DatabaseLockStore}. <p>
+ * 
+ * If a lock is held by someone else the caller waits at most <code>lock.waitTimeout</code> milliseconds for it to be 
+ * released, default is not to wait at all.
  * 
  * @author Peter
  *
@@ -35,7 +47,25 @@ import org.springframework.stereotype.Service;
 @Service
 public class LockService {
     
-    private Set<String> locks = new HashSet<String>();
+    static final String DATABASE_BACKEND = "database";
+    
+    // max time to wait before checking again (database locks are not notified)
+    static final long POLL_INTERVAL = 50L;
+    
+    private final ConcurrentMap<String, Boolean> locks = new ConcurrentHashMap<String, Boolean>();
+    
+    private final Object monitor = new Object();
+    
+    private final AtomicInteger waiting = new AtomicInteger();
+    
+    @Value("${lock.waitTimeout:0}")
+    private long waitTimeout;
+    
+    @Value("${lock.backend:local}")
+    private String backend;
+    
+    @Autowired(required = false)
+    private DatabaseLockStore databaseLockStore;
 
     /**
      * Acquires a lock for name.
@@ -43,8 +73,8 @@ public class LockService {
      * @param name the unique resource name to lock.
      * @return true if a lock has been acquired, otherwise false.
      */
-    public synchronized boolean acquire(final String name) {
-        return locks.add(name);
+    public boolean acquire(final String name) {
+        return acquire(Collections.singletonList(name));
     }
 
     /**
@@ -53,13 +83,32 @@ public class LockService {
      * @param names the unique resource names to lock.
      * @return true if a lock has been acquired for all, otherwise false.
      */
-    public synchronized boolean acquire(final List<String> names) {
-        for (final String name : names) {
-            if (locks.contains(name)) {
-                return false;
+    public boolean acquire(final List<String> names) {
+        final Collection<String> unique = new LinkedHashSet<String>(names);
+        if (tryAcquire(unique)) {
+            return true;
+        }
+        if (waitTimeout <= 0) {
+            return false;
+        }
+        
+        final long deadline = System.currentTimeMillis() + waitTimeout;
+        waiting.incrementAndGet();
+        try {
+            for (long remaining = waitTimeout; remaining > 0; remaining = deadline - System.currentTimeMillis()) {
+                synchronized (monitor) {
+                    monitor.wait(Math.min(remaining, POLL_INTERVAL));
+                }
+                if (tryAcquire(unique)) {
+                    return true;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
         }
-        return locks.addAll(names);
+        return false;
     }
 
     
@@ -68,8 +117,8 @@ public class LockService {
      * 
      * @param name the unique resource name of the lock to remove.
      */
-    public synchronized void release(final String name) {
-        locks.remove(name);
+    public void release(final String name) {
+        release(Collections.singletonList(name));
     }
 
     /**
@@ -77,8 +126,56 @@ public class LockService {
      * 
      * @param names the unique resource names of the locks to remove.
      */
-    public synchronized void release(final List<String> names) {
-        locks.removeAll(names);
+    public void release(final List<String> names) {
+        final Collection<String> unique = new LinkedHashSet<String>(names);
+        try {
+            if (isDatabaseBackend()) {
+                databaseLockStore.release(unique);
+            }
+        } finally {
+            releaseLocal(unique);
+            if (waiting.get() > 0) {
+                synchronized (monitor) {
+                    monitor.notifyAll();
+                }
+            }
+        }
     }
 
+    //
+    boolean isDatabaseBackend() {
+        return DATABASE_BACKEND.equals(backend);
+    }
+
+    // local locks are always acquired first to keep contention away from the database
+    private boolean tryAcquire(final Collection<String> names) {
+        if (!tryAcquireLocal(names)) {
+            return false;
+        }
+        if (isDatabaseBackend() && !databaseLockStore.tryAcquire(names)) {
+            releaseLocal(names);
+            return false;
+        }
+        return true;
+    }
+    
+    //
+    private boolean tryAcquireLocal(final Collection<String> names) {
+        final List<String> acquired = new ArrayList<String>(names.size());
+        for (final String name : names) {
+            if (locks.putIfAbsent(name, Boolean.TRUE) != null) {
+                releaseLocal(acquired);
+                return false;
+            }
+            acquired.add(name);
+        }
+        return true;
+    }
+    
+    //
+    private void releaseLocal(final Collection<String> names) {
+        for (final String name : names) {
+            locks.remove(name);
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable in-memory index of all price lists. <p>
+ * 
+ * Prices are keyed by supplier and service code, then by the valid from date (ordered), and finally 
+ * by item id. A lookup resolves the most recent price list valid at the actual time, i.e. the same 
+ * price list as the one returned first by 
+ * <code>PriceListRepository.findBySupplierIdAndServiceCodeAndValidFromLessThanEqualOrderByValidFromDesc</code>. <p>
+ * 
+ * An index is never changed after it has been built, a new one is built when price lists are changed.
+ * 
+ * @author Peter
+ */
+final class PriceIndex {
+
+    private final long generation;
+    private final Map<String, NavigableMap<Long, Map<String, BigDecimal>>> prices;
+
+    //
+    private PriceIndex(long generation, Map<String, NavigableMap<Long, Map<String, BigDecimal>>> prices) {
+        this.generation = generation;
+        this.prices = prices;
+    }
+
+    /**
+     * Builds an index from price rows.
+     * 
+     * @param generation the generation of price list changes this index reflects.
+     * @param rows the rows as returned by <code>PriceListRepository.findAllPrices()</code>.
+     * @return the index.
+     */
+    static PriceIndex build(long generation, List<Object[]> rows) {
+        final Map<String, NavigableMap<Long, Map<String, BigDecimal>>> prices = new HashMap<String, NavigableMap<Long, Map<String, BigDecimal>>>();
+        for (final Object[] row : rows) {
+            final String key = key((String) row[0], (String) row[1]);
+            NavigableMap<Long, Map<String, BigDecimal>> versions = prices.get(key);
+            if (versions == null) {
+                versions = new TreeMap<Long, Map<String, BigDecimal>>();
+                prices.put(key, versions);
+            }
+            final Long validFrom = ((Date) row[2]).getTime();
+            Map<String, BigDecimal> items = versions.get(validFrom);
+            if (items == null) {
+                items = new HashMap<String, BigDecimal>();
+                versions.put(validFrom, items);
+            }
+            // price lists without any prices are kept, since they hide older versions
+            if (row[3] != null) {
+                items.put((String) row[3], (BigDecimal) row[4]);
+            }
+        }
+        return new PriceIndex(generation, Collections.unmodifiableMap(prices));
+    }
+
+    /**
+     * Returns the generation of price list changes this index reflects.
+     * 
+     * @return the generation.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the price of an item.
+     * 
+     * @param supplierId the supplier id.
+     * @param serviceCode the service code.
+     * @param actual actual time for the event.
+     * @param itemId the item id.
+     * @return the price, or null if no price list is valid for the actual time, or the item is missing in that price list.
+     */
+    BigDecimal lookup(String supplierId, String serviceCode, Date actual, String itemId) {
+        final NavigableMap<Long, Map<String, BigDecimal>> versions = prices.get(key(supplierId, serviceCode));
+        if (versions == null || actual == null) {
+            return null;
+        }
+        final Map.Entry<Long, Map<String, BigDecimal>> version = versions.floorEntry(actual.getTime());
+        return (version == null) ? null : version.getValue().get(itemId);
+    }
+
+    //
+    static String key(String supplierId, String serviceCode) {
+        return supplierId + '\u0000' + serviceCode;
+    }
+}
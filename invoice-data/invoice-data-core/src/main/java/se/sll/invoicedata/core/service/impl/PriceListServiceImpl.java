@@ -19,11 +19,15 @@
 
 package se.sll.invoicedata.core.service.impl;
 
-import static se.sll.invoicedata.core.service.impl.CoreUtil.copyGenericLists;
-import static se.sll.invoicedata.core.service.impl.CoreUtil.copyProperties;
-
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +38,9 @@ import org.springframework.transaction.annotation.Transactional;
 import se.sll.invoicedata.core.model.entity.PriceEntity;
 import se.sll.invoicedata.core.model.entity.PriceListEntity;
 import se.sll.invoicedata.core.model.repository.PriceListRepository;
+import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
 import se.sll.invoicedata.core.service.PriceListService;
+import se.sll.invoicedata.core.service.RatingService;
 import se.sll.invoicedata.core.service.dto.Price;
 import se.sll.invoicedata.core.service.dto.PriceList;
 import se.sll.invoicedata.core.service.dto.ServiceResponse;
@@ -48,16 +54,45 @@ public class PriceListServiceImpl implements PriceListService {
     @Autowired
     private PriceListRepository priceListRepository;
 
+    @Autowired
+    private RatingService ratingService;
+
     //
     static PriceList toPriceList(PriceListEntity priceListEntity) {
         if (priceListEntity == null) {
             return null;
         }
-        final PriceList priceList = copyProperties(priceListEntity, PriceList.class);
-        copyGenericLists(priceList.getPrices(), priceListEntity.getPriceEntities(), Price.class);
+        final PriceList priceList = new PriceList();
+        priceList.setId(priceListEntity.getId());
+        priceList.setSupplierId(priceListEntity.getSupplierId());
+        priceList.setServiceCode(priceListEntity.getServiceCode());
+        priceList.setValidFrom(priceListEntity.getValidFrom());
+        priceList.setSupplierName(priceListEntity.getSupplierName());
+        for (final PriceEntity priceEntity : priceListEntity.getPriceEntities()) {
+            final Price price = new Price();
+            price.setItemId(priceEntity.getItemId());
+            price.setPrice(priceEntity.getPrice());
+            priceList.getPrices().add(price);
+        }
         return priceList;
     }
     
+    //
+    static PriceListEntity toPriceListEntity(PriceList priceList) {
+        final PriceListEntity priceListEntity = new PriceListEntity();
+        priceListEntity.setSupplierId(priceList.getSupplierId());
+        priceListEntity.setServiceCode(priceList.getServiceCode());
+        priceListEntity.setValidFrom(priceList.getValidFrom());
+        priceListEntity.setSupplierName(priceList.getSupplierName());
+        for (final Price price : priceList.getPrices()) {
+            final PriceEntity priceEntity = new PriceEntity();
+            priceEntity.setItemId(price.getItemId());
+            priceEntity.setPrice(price.getPrice());
+            priceListEntity.addPriceEntity(priceEntity);
+        }
+        return priceListEntity;
+    }
+    
     @Override
     public List<PriceList> getPriceLists() {
         final List<PriceListEntity> source = priceListRepository.findAll();
@@ -84,6 +119,8 @@ public class PriceListServiceImpl implements PriceListService {
     @Override
     public ServiceResponse savePriceList(final PriceList priceList) {
 
+        validatePrices(priceList);
+
         final ServiceResponse response = new ServiceResponse();
 
         final PriceListEntity oldPriceListEntity = lookupPriceListEntity(priceList);
@@ -100,25 +137,175 @@ public class PriceListServiceImpl implements PriceListService {
             response.setMessage("created");            
         }
         
-        final PriceListEntity newPriceListEntity = copyProperties(priceList, PriceListEntity.class);
-        
-        for (final Price price : priceList.getPrices()) {
-            log.debug("price {}", price);
-            newPriceListEntity.addPriceEntity(copyProperties(price, PriceEntity.class));
-        }
+        final PriceListEntity newPriceListEntity = toPriceListEntity(priceList);
                 
         response.setId(priceListRepository.save(newPriceListEntity).getId());
+        ratingService.priceListsChanged();
         
         return response;
     }
 
+    /**
+     * Imports price lists in bulk, i.e. diffs against existing price lists and only writes changes. <p>
+     * 
+     * Existing price lists are loaded with prices in one query. Changed and removed prices are deleted 
+     * and flushed before changed and added prices are inserted, since a price is immutable and identified 
+     * by price list and item id. All price lists are saved in the same transaction, and rating is notified 
+     * once. <p>
+     * 
+     * A price list is matched by id or logical key (supplier, service code and valid from date), 
+     * and the last one wins when the same price list occurs several times. A price list matched by id 
+     * with another logical key is replaced, i.e. deleted and created with a new id. <p>
+     * 
+     * Nothing is saved if any price list has the same item more than once.
+     */
     @Override
-    public List<ServiceResponse> savePriceLists(List<PriceList> priceLists) {
-        List<ServiceResponse> responses = new ArrayList<ServiceResponse>(priceLists.size());
+    public List<ServiceResponse> savePriceLists(final List<PriceList> priceLists) {
+        for (final PriceList priceList : priceLists) {
+            validatePrices(priceList);
+        }
+
+        final Map<Long, PriceListEntity> byId = new HashMap<Long, PriceListEntity>();
+        final Map<String, PriceListEntity> byKey = new HashMap<String, PriceListEntity>();
+        for (final PriceListEntity priceListEntity : priceListRepository.findAllWithPrices()) {
+            byId.put(priceListEntity.getId(), priceListEntity);
+            byKey.put(key(priceListEntity), priceListEntity);
+        }
+
+        final Map<PriceListEntity, PriceList> updates = new LinkedHashMap<PriceListEntity, PriceList>();
+        final Map<ServiceResponse, PriceListEntity> creates = new LinkedHashMap<ServiceResponse, PriceListEntity>();
+        final Map<String, ServiceResponse> responses = new HashMap<String, ServiceResponse>();
+        for (final PriceList priceList : lastOccurrences(priceLists)) {
+            final PriceListEntity oldPriceListEntity = (priceList.getId() != null) ? byId.get(priceList.getId()) 
+                    : byKey.get(key(priceList.getSupplierId(), priceList.getServiceCode(), priceList.getValidFrom()));
+            final ServiceResponse response = new ServiceResponse();
+            if (oldPriceListEntity == null) {
+                creates.put(response, toPriceListEntity(priceList));
+                response.setMessage("created");
+            } else if (!key(oldPriceListEntity).equals(key(priceList.getSupplierId(), priceList.getServiceCode(), priceList.getValidFrom()))) {
+                // the logical key is immutable, i.e. replace the price list
+                byKey.remove(key(oldPriceListEntity));
+                priceListRepository.delete(oldPriceListEntity);
+                creates.put(response, toPriceListEntity(priceList));
+                response.setMessage("updated");
+            } else if (removeChangedPrices(oldPriceListEntity, priceList)) {
+                updates.put(oldPriceListEntity, priceList);
+                response.setId(oldPriceListEntity.getId());
+                response.setMessage("updated");
+            } else {
+                response.setId(oldPriceListEntity.getId());
+                response.setMessage("unchanged");
+            }
+            responses.put(key(priceList), response);
+        }
+        
+        // deletes must be executed before inserts of the same items and keys
+        priceListRepository.flush();
+        for (final Map.Entry<PriceListEntity, PriceList> update : updates.entrySet()) {
+            addChangedPrices(update.getKey(), update.getValue());
+        }
+        priceListRepository.save(creates.values());
+        priceListRepository.flush();
+        for (final Map.Entry<ServiceResponse, PriceListEntity> create : creates.entrySet()) {
+            create.getKey().setId(create.getValue().getId());
+        }
+        
+        if (updates.size() > 0 || creates.size() > 0) {
+            ratingService.priceListsChanged();
+        }
+        log.info("import pricelists, created: {}, updated: {}, unchanged: {}", 
+                new Object[] { creates.size(), updates.size(), responses.size() - creates.size() - updates.size() });
+        
+        final List<ServiceResponse> list = new ArrayList<ServiceResponse>(priceLists.size());
         for (final PriceList priceList : priceLists) {
-            responses.add(savePriceList(priceList));
+            list.add(responses.get(key(priceList)));
         }
-        return responses;
+        return list;
+    }
+
+    // logical key of a price list
+    private static String key(final String supplierId, final String serviceCode, final Date validFrom) {
+        final Date date = CoreUtil.floorDate(validFrom);
+        return supplierId + "/" + serviceCode + "/" + ((date == null) ? null : date.getTime());
+    }
+
+    // logical key of a stored price list
+    private static String key(final PriceListEntity priceListEntity) {
+        return key(priceListEntity.getSupplierId(), priceListEntity.getServiceCode(), priceListEntity.getValidFrom());
+    }
+
+    // key of a price list to save, i.e. the id if present
+    private static String key(final PriceList priceList) {
+        return (priceList.getId() != null) ? String.valueOf(priceList.getId()) 
+                : key(priceList.getSupplierId(), priceList.getServiceCode(), priceList.getValidFrom());
+    }
+
+    // returns price lists in order, except those also occurring later on (last one wins)
+    private static List<PriceList> lastOccurrences(final List<PriceList> priceLists) {
+        final Map<String, PriceList> map = new LinkedHashMap<String, PriceList>();
+        for (final PriceList priceList : priceLists) {
+            final String key = key(priceList);
+            map.remove(key);
+            map.put(key, priceList);
+        }
+        return new ArrayList<PriceList>(map.values());
+    }
+
+    // removes changed and removed prices, and updates supplier name, returns true if anything has been changed
+    private static boolean removeChangedPrices(final PriceListEntity priceListEntity, final PriceList priceList) {
+        final Map<String, BigDecimal> prices = toPriceMap(priceList);
+        boolean changed = (priceListEntity.getPriceEntities().size() != prices.size());
+        for (final PriceEntity priceEntity : new ArrayList<PriceEntity>(priceListEntity.getPriceEntities())) {
+            final BigDecimal price = prices.get(priceEntity.getItemId());
+            if (price == null || price.compareTo(priceEntity.getPrice()) != 0) {
+                priceListEntity.removePriceEntity(priceEntity);
+                changed = true;
+            }
+        }
+        if (!equals(priceListEntity.getSupplierName(), priceList.getSupplierName())) {
+            priceListEntity.setSupplierName(priceList.getSupplierName());
+            changed = true;
+        }
+        return changed;
+    }
+
+    // rejects a price list with the same item more than once
+    private static void validatePrices(final PriceList priceList) {
+        final Set<String> itemIds = new HashSet<String>();
+        for (final Price price : priceList.getPrices()) {
+            if (!itemIds.add(price.getItemId())) {
+                throw InvoiceDataErrorCodeEnum.VALIDATION_ERROR.createException("duplicate itemId " + price.getItemId() 
+                        + " in price list " + key(priceList));
+            }
+        }
+    }
+
+    // adds prices not (or no longer) present in the price list
+    private static void addChangedPrices(final PriceListEntity priceListEntity, final PriceList priceList) {
+        final Map<String, BigDecimal> prices = toPriceMap(priceList);
+        for (final PriceEntity priceEntity : priceListEntity.getPriceEntities()) {
+            prices.remove(priceEntity.getItemId());
+        }
+        for (final Map.Entry<String, BigDecimal> price : prices.entrySet()) {
+            final PriceEntity priceEntity = new PriceEntity();
+            priceEntity.setItemId(price.getKey());
+            priceEntity.setPrice(price.getValue());
+            priceListEntity.addPriceEntity(priceEntity);
+        }
+    }
+
+    //
+    private static Map<String, BigDecimal> toPriceMap(final PriceList priceList) {
+        final Map<String, BigDecimal> map = new LinkedHashMap<String, BigDecimal>();
+        for (final Price price : priceList.getPrices()) {
+            map.put(price.getItemId(), price.getPrice());
+        }
+        return map;
+    }
+
+    //
+    private static boolean equals(final String s1, final String s2) {
+        return (s1 == null) ? (s2 == null) : s1.equals(s2);
     }
 
     @Override
@@ -128,6 +315,7 @@ public class PriceListServiceImpl implements PriceListService {
         serviceResponse.setId(id);
         if (priceListEntity != null) {
             priceListRepository.delete(priceListEntity);
+            ratingService.priceListsChanged();
             serviceResponse.setMessage("deleted");
         } else {
             serviceResponse.setMessage("not found");
@@ -0,0 +1,80 @@
+--
+-- Copyright (c) 2013 SLL. <http://sll.se>
+--
+-- This file is part of Invoice-Data.
+--
+--     Invoice-Data is free software: you can redistribute it and/or modify
+--     it under the terms of the GNU Lesser General Public License as published by
+--     the Free Software Foundation, either version 3 of the License, or
+--     (at your option) any later version.
+--
+--     Invoice-Data is distributed in the hope that it will be useful,
+--     but WITHOUT ANY WARRANTY; without even the implied warranty of
+--     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+--     GNU Lesser General Public License for more details.
+--
+--     You should have received a copy of the GNU Lesser General Public License
+--     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+--
+
+--Add new table invoice_data_lock
+DROP TABLE IF EXISTS `invoice_data_lock`;
+CREATE TABLE `invoice_data_lock` (
+  `name` varchar(255) NOT NULL,
+  `owner` varchar(64) NOT NULL,
+  `created_timestamp` datetime NOT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB;
+
+--Add new table invoice_data_job, state of asynchronous CreateInvoiceData jobs
+DROP TABLE IF EXISTS `invoice_data_job`;
+CREATE TABLE `invoice_data_job` (
+  `job_id` varchar(64) NOT NULL,
+  `supplier_id` varchar(64) NOT NULL,
+  `owner` varchar(64) NOT NULL,
+  `status` varchar(16) NOT NULL,
+  `reference_id` varchar(64) DEFAULT NULL,
+  `error_code` varchar(64) DEFAULT NULL,
+  `error_message` varchar(1024) DEFAULT NULL,
+  `submitted_time` datetime NOT NULL,
+  `started_time` datetime DEFAULT NULL,
+  `finished_time` datetime DEFAULT NULL,
+  `version` int(11) NOT NULL,
+  PRIMARY KEY (`job_id`),
+  KEY `invoice_data_job_ix_1` (`finished_time`)
+) ENGINE=InnoDB;
+
+--Add composite indexes for ListInvoiceData date range queries
+CREATE INDEX `invoice_data_query_ix_1` ON `invoice_data` (`supplier_id`, `start_date`, `end_date`);
+CREATE INDEX `invoice_data_query_ix_2` ON `invoice_data` (`payment_responsible`, `start_date`, `end_date`);
+
+--Extend pending event indexes with period and payment responsible
+DROP INDEX `invoice_data_event_query_ix_1` ON `invoice_data_event`;
+CREATE INDEX `invoice_data_event_query_ix_1` ON `invoice_data_event` (`supplier_id`, `pending`, `start_time`);
+CREATE INDEX `invoice_data_event_query_ix_4` ON `invoice_data_event` (`supplier_id`, `pending`, `payment_responsible`, `start_time`);
+
+--Add stored total amounts, existing rows are backfilled by the batch job (JobService)
+ALTER TABLE invoice_data_event ADD COLUMN total_amount decimal(14,4) DEFAULT NULL;
+ALTER TABLE invoice_data_event_discount_item ADD COLUMN total_amount decimal(14,4) DEFAULT NULL;
+
+--Add id generator table (pooled, one row per entity table), and continue one block after current max ids
+--The block size must be the same as database.id-allocation-size of the application
+SET @id_allocation_size = 50;
+DROP TABLE IF EXISTS `invoice_data_sequence`;
+CREATE TABLE `invoice_data_sequence` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint(20) DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_pricelist', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_pricelist`;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_pricelist_item', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_pricelist_item`;
+
+--Continue after current invoice data and event ids, ids are allocated by the pooled table generator from now on
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data`;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_event', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_event`;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_event_item', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_event_item`;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_event_discount_item', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_event_discount_item`;
+INSERT INTO `invoice_data_sequence` (`sequence_name`, `next_val`) SELECT 'invoice_data_event_reference_item', COALESCE(MAX(`id`), 0) + @id_allocation_size + 1 FROM `invoice_data_event_reference_item`;
+
+--Add event content hash, identical re-registrations of pending events are skipped
+ALTER TABLE invoice_data_event ADD COLUMN content_hash varchar(64) DEFAULT NULL;
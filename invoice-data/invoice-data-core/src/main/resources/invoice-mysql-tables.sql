@@ -50,7 +50,9 @@ CREATE TABLE `invoice_data` (
   `start_date` date NOT NULL,
   `supplier_id` varchar(64) NOT NULL,
   `total_amount` decimal(8,2) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `invoice_data_query_ix_1` (`supplier_id`,`start_date`,`end_date`),
+  KEY `invoice_data_query_ix_2` (`payment_responsible`,`start_date`,`end_date`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -66,6 +68,7 @@ CREATE TABLE `invoice_data_event` (
   `acknowledged_by` varchar(64) NOT NULL,
   `acknowledged_time` datetime NOT NULL,
   `acknowledgement_id` varchar(64) NOT NULL,
+  `content_hash` varchar(64) DEFAULT NULL,
   `created_timestamp` datetime NOT NULL,
   `credit` bit(1) DEFAULT NULL,
   `credited` bit(1) DEFAULT NULL,
@@ -80,11 +83,13 @@ CREATE TABLE `invoice_data_event` (
   `start_time` datetime NOT NULL,
   `supplier_id` varchar(64) NOT NULL,
   `supplier_name` longtext NOT NULL,
+  `total_amount` decimal(14,4) DEFAULT NULL,
   `invoice_data_id` bigint(20) DEFAULT NULL,
   PRIMARY KEY (`id`),
   KEY `invoice_data_event_query_ix_2` (`event_id`),
-  KEY `invoice_data_event_query_ix_1` (`supplier_id`,`pending`),
+  KEY `invoice_data_event_query_ix_1` (`supplier_id`,`pending`,`start_time`),
   KEY `invoice_data_event_query_ix_3` (`acknowledgement_id`),
+  KEY `invoice_data_event_query_ix_4` (`supplier_id`,`pending`,`payment_responsible`,`start_time`),
   KEY `FKC29022178FF8CD73` (`invoice_data_id`),
   CONSTRAINT `FKC29022178FF8CD73` FOREIGN KEY (`invoice_data_id`) REFERENCES `invoice_data` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -110,6 +115,44 @@ CREATE TABLE `invoice_data_event_item` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `invoice_data_event_discount_item`
+--
+
+DROP TABLE IF EXISTS `invoice_data_event_discount_item`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `invoice_data_event_discount_item` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `description` longtext NOT NULL,
+  `discount_in_percentage` int(11) NOT NULL,
+  `order_of_discount` int(11) NOT NULL,
+  `total_amount` decimal(14,4) DEFAULT NULL,
+  `event_id` bigint(20) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FK6C0DF29B8B18D8` (`event_id`),
+  CONSTRAINT `FK6C0DF29B8B18D8` FOREIGN KEY (`event_id`) REFERENCES `invoice_data_event` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `invoice_data_event_reference_item`
+--
+
+DROP TABLE IF EXISTS `invoice_data_event_reference_item`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `invoice_data_event_reference_item` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `qty` int(11) NOT NULL,
+  `reference_item_id` varchar(255) NOT NULL,
+  `discount_item_id` bigint(20) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FK562AC6AF2A7105A5` (`discount_item_id`),
+  CONSTRAINT `FK562AC6AF2A7105A5` FOREIGN KEY (`discount_item_id`) REFERENCES `invoice_data_event_discount_item` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `invoice_data_pricelist`
 --
@@ -146,6 +189,20 @@ CREATE TABLE `invoice_data_pricelist_item` (
   CONSTRAINT `FKED35540EC367E1EB` FOREIGN KEY (`price_list_id`) REFERENCES `invoice_data_pricelist` (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=1841 DEFAULT CHARSET=utf8;
 /*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `invoice_data_sequence`
+--
+
+DROP TABLE IF EXISTS `invoice_data_sequence`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `invoice_data_sequence` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint(20) DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+/*!40101 SET character_set_client = @saved_cs_client */;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
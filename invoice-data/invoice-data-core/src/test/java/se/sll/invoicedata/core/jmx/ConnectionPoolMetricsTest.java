@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.jmx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import se.sll.invoicedata.core.support.TestSupport;
+
+/**
+ * Tests connection pool metrics exposed by the StatusBean.
+ * 
+ * @author Peter
+ *
+ */
+public class ConnectionPoolMetricsTest extends TestSupport {
+
+    @Autowired
+    private StatusBean statusBean;
+
+    @Test
+    public void testConnectionPool_Metrics() {
+        getInvoiceDataRepository().findOne(0L);
+
+        assertTrue(statusBean.getTotalConnections() > 0);
+        assertEquals(statusBean.getTotalConnections(), statusBean.getActiveConnections() + statusBean.getIdleConnections());
+        assertEquals(0, statusBean.getPendingConnectionRequests());
+        assertEquals(0, statusBean.getConnectionTimeouts());
+        assertTrue(Arrays.asList(statusBean.getServiceNames()).contains(ConnectionPoolMetrics.ACQUIRE));
+        assertTrue(Arrays.asList(statusBean.getServiceNames()).contains(ConnectionPoolMetrics.USAGE));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.jmx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests Histogram and MetricsRegistry.
+ * 
+ * @author Peter
+ *
+ */
+public class HistogramTest {
+
+    @Test
+    public void testHistogram_Percentiles() {
+        final Histogram h = new Histogram("test", 100);
+        for (int i = 100; i >= 1; i--) {
+            h.add(i);
+        }
+        final Histogram.Snapshot s = h.snapshot();
+        assertEquals(100, s.n());
+        assertEquals(1, s.min());
+        assertEquals(100, s.max());
+        assertEquals(50, s.avg());
+        assertEquals(50, s.percentile(0.50));
+        assertEquals(95, s.percentile(0.95));
+        assertEquals(99, s.percentile(0.99));
+        
+        // ring buffer keeps the latest measurements only
+        for (int i = 0; i < 100; i++) {
+            h.add(1000);
+        }
+        assertEquals(1000, h.snapshot().min());
+        assertEquals(200, h.count());
+    }
+    
+    @Test
+    public void testRegistry_Concurrent_Record() throws InterruptedException {
+        final MetricsRegistry registry = new MetricsRegistry(1000);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        registry.record("op-" + (j % 4), j);
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        
+        assertEquals(4, registry.names().size());
+        long total = 0;
+        for (final Histogram h : registry.histograms()) {
+            total += h.count();
+            assertTrue(h.snapshot().n() == 1000);
+        }
+        assertEquals(80000, total);
+    }
+}
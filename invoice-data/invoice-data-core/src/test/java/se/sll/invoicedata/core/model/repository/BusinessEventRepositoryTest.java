@@ -21,16 +21,35 @@ package se.sll.invoicedata.core.model.repository;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.math.BigDecimal;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.stat.Statistics;
+
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.model.entity.ReferenceItemEntity;
 import se.sll.invoicedata.core.support.TestSupport;
 
 /**
@@ -40,6 +59,45 @@ import se.sll.invoicedata.core.support.TestSupport;
  */
 public class BusinessEventRepositoryTest extends TestSupport {
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${database.id-allocation-size}")
+    private int idAllocationSize;
+
+    @Test
+    public void testId_Allocation_Size_Configured() {
+        final SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+        for (final Class<?> type : new Class<?>[] { BusinessEventEntity.class, ItemEntity.class, DiscountItemEntity.class, ReferenceItemEntity.class }) {
+            final TableGenerator generator = (TableGenerator) sessionFactory.getIdentifierGenerator(type.getName());
+            assertEquals(idAllocationSize, generator.getIncrementSize());
+        }
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testInsert_Items_Batched() {
+        final BusinessEventEntity e = createSampleBusinessEventEntity();
+        for (int i = 0; i < 20; i++) {
+            final ItemEntity item = createSampleItemEntity();
+            item.setItemId("IT" + i);
+            item.setPrice(BigDecimal.valueOf(i));
+            e.addItemEntity(item);
+        }
+        final Statistics statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+        final long before = statistics.getPrepareStatementCount();
+        getBusinessEventRepository().save(e);
+        getBusinessEventRepository().flush();
+        
+        // one batch for the event and one for items, i.e. not one statement per item (identity ids)
+        assertTrue(statistics.getPrepareStatementCount() - before < 5);
+        assertEquals(20, getBusinessEventRepository().findOne(e.getId()).getItemEntities().size());
+    }
+
     @Test
     @Transactional
     @Rollback(true)
@@ -145,5 +203,92 @@ public class BusinessEventRepositoryTest extends TestSupport {
         		f.getItemEntities().get(0).getItemId());
        
     }
-    
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testFetch_Item_And_Discount_Entities() {
+
+        final BusinessEventEntity e = createSampleBusinessEventEntity();
+        e.addItemEntity(createSampleItemEntity());
+        final DiscountItemEntity d = new DiscountItemEntity();
+        d.setDescription("Discount");
+        d.setDiscountInPercentage(50);
+        d.setOrderOfDiscount(1);
+        final ReferenceItemEntity r = new ReferenceItemEntity();
+        r.setRefItemId(e.getItemEntities().get(0).getItemId());
+        r.setQty(1);
+        d.addReferenceItemEntity(r);
+        e.addDiscountItemEntity(d);
+
+        getBusinessEventRepository().save(e);
+        getBusinessEventRepository().flush();
+        entityManager.clear();
+
+        final PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        final BusinessEventEntity f = getBusinessEventRepository().findOne(e.getId());
+        assertTrue(!util.isLoaded(f, "itemEntities"));
+        assertTrue(!util.isLoaded(f, "discountItemEntities"));
+
+        final List<Long> ids = Collections.singletonList(f.getId());
+        getBusinessEventRepository().fetchItemEntities(ids);
+        getBusinessEventRepository().fetchDiscountItemEntities(ids);
+        getBusinessEventRepository().fetchReferenceItemEntities(ids);
+
+        assertTrue(util.isLoaded(f, "itemEntities"));
+        assertTrue(util.isLoaded(f, "discountItemEntities"));
+        assertEquals(1, f.getItemEntities().size());
+        assertEquals(1, f.getDiscountItemEntities().size());
+        assertTrue(util.isLoaded(f.getDiscountItemEntities().get(0), "referenceItemEntities"));
+        assertEquals(1, f.getDiscountItemEntities().get(0).getReferenceItemEntities().size());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testTotal_Amount_Same_Before_And_After_Save() {
+        final List<String> ids = new ArrayList<String>();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < 2; i++) {
+            final BusinessEventEntity e = createSampleBusinessEventEntity();
+            e.addItemEntity(createDiscountedItemEntity());
+            final DiscountItemEntity d = new DiscountItemEntity();
+            d.setDescription("Discount");
+            d.setDiscountInPercentage(5);
+            d.setOrderOfDiscount(1);
+            final ReferenceItemEntity r = new ReferenceItemEntity();
+            r.setRefItemId(e.getItemEntities().get(0).getItemId());
+            r.setQty(1);
+            d.addReferenceItemEntity(r);
+            e.addDiscountItemEntity(d);
+
+            // 0.10 - 0.005
+            final BigDecimal unsaved = e.getTotalAmount();
+            assertEquals(new BigDecimal("0.10"), unsaved);
+            getBusinessEventRepository().save(e);
+            getBusinessEventRepository().flush();
+            entityManager.clear();
+
+            assertEquals(unsaved, getBusinessEventRepository().findOne(e.getId()).getTotalAmount());
+            final BigDecimal stored = (BigDecimal) entityManager.createQuery("SELECT e.totalAmount FROM invoice_data_event e WHERE e.id = :id")
+                    .setParameter("id", e.getId()).getSingleResult();
+            assertEquals(0, new BigDecimal("0.095").compareTo(stored));
+
+            ids.add(e.getAcknowledgementId());
+            sum = sum.add(unsaved);
+        }
+
+        final List<EventAggregateRow> rows = getBusinessEventRepository().aggregatePendingByAcknowledgementIdIn(ids);
+        assertEquals(1, rows.size());
+        assertEquals(0, sum.compareTo(rows.get(0).getTotalAmount()));
+    }
+
+    //
+    private ItemEntity createDiscountedItemEntity() {
+        final ItemEntity i = createSampleItemEntity();
+        i.setQty(BigDecimal.valueOf(1.0));
+        i.setPrice(new BigDecimal("0.10"));
+        return i;
+    }
+
 }
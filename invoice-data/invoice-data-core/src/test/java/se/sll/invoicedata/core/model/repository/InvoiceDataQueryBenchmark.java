@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.model.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the ListInvoiceData date range predicate on a generated <code>invoice_data</code> table. <p>
+ * 
+ * Compares the former <code>BETWEEN ... OR BETWEEN</code> predicate on a table without secondary indexes with 
+ * the overlap predicate of {@link InvoiceDataRepository} on a table with the composite indexes of 
+ * {@link se.sll.invoicedata.core.model.entity.InvoiceDataEntity}. The <code>between_indexed</code> variants 
+ * run the former predicate on the indexed table, i.e. tell the gain of the indexes from the gain of the 
+ * predicate. An in-memory H2 database is used, point the URL to a MySQL schema to measure production 
+ * like figures. <p>
+ * 
+ * Not a unit test, run with <code>mvn test-compile exec:java -Dexec.classpathScope=test 
+ * -Dexec.mainClass=se.sll.invoicedata.core.model.repository.InvoiceDataQueryBenchmark</code>, 
+ * or from the IDE. The table size is set with the JMH parameter <code>rows</code>.
+ * 
+ * @author Peter
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+public class InvoiceDataQueryBenchmark {
+
+    static final String URL = "jdbc:h2:mem:invoice-data-benchmark;DB_CLOSE_DELAY=-1";
+    static final int SUPPLIERS = 2000;
+    static final int PAYMENT_RESPONSIBLES = 20;
+    static final int DAYS = 3650;
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+    static final long EPOCH = Date.valueOf("2010-01-01").getTime();
+
+    static final String BETWEEN_PREDICATE = 
+            "((start_date BETWEEN ? AND ?) OR (end_date BETWEEN ? AND ?))";
+    static final String OVERLAP_PREDICATE = 
+            "start_date <= ? AND end_date >= ?";
+
+    @Param({ "1000000", "5000000" })
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement bySupplierBetween;
+    private PreparedStatement bySupplierBetweenIndexed;
+    private PreparedStatement bySupplierOverlap;
+    private PreparedStatement byPaymentResponsibleBetween;
+    private PreparedStatement byPaymentResponsibleBetweenIndexed;
+    private PreparedStatement byPaymentResponsibleOverlap;
+    private final Random random = new Random(17);
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(URL);
+        createTable("invoice_data_plain", false);
+        createTable("invoice_data", true);
+        
+        bySupplierBetween = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data_plain WHERE supplier_id = ? AND " + BETWEEN_PREDICATE);
+        bySupplierBetweenIndexed = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data WHERE supplier_id = ? AND " + BETWEEN_PREDICATE);
+        bySupplierOverlap = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data WHERE supplier_id = ? AND " + OVERLAP_PREDICATE);
+        byPaymentResponsibleBetween = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data_plain WHERE payment_responsible = ? AND " + BETWEEN_PREDICATE);
+        byPaymentResponsibleBetweenIndexed = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data WHERE payment_responsible = ? AND " + BETWEEN_PREDICATE);
+        byPaymentResponsibleOverlap = connection.prepareStatement(
+                "SELECT id, total_amount FROM invoice_data WHERE payment_responsible = ? AND " + OVERLAP_PREDICATE);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        final Statement statement = connection.createStatement();
+        statement.execute("DROP ALL OBJECTS");
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public int supplier_between_unindexed() throws SQLException {
+        return between(bySupplierBetween, supplierId(random.nextInt(SUPPLIERS)));
+    }
+
+    @Benchmark
+    public int supplier_between_indexed() throws SQLException {
+        return between(bySupplierBetweenIndexed, supplierId(random.nextInt(SUPPLIERS)));
+    }
+
+    @Benchmark
+    public int supplier_overlap_indexed() throws SQLException {
+        return overlap(bySupplierOverlap, supplierId(random.nextInt(SUPPLIERS)));
+    }
+
+    @Benchmark
+    public int paymentResponsible_between_unindexed() throws SQLException {
+        return between(byPaymentResponsibleBetween, paymentResponsible(random.nextInt(PAYMENT_RESPONSIBLES)));
+    }
+
+    @Benchmark
+    public int paymentResponsible_between_indexed() throws SQLException {
+        return between(byPaymentResponsibleBetweenIndexed, paymentResponsible(random.nextInt(PAYMENT_RESPONSIBLES)));
+    }
+
+    @Benchmark
+    public int paymentResponsible_overlap_indexed() throws SQLException {
+        return overlap(byPaymentResponsibleOverlap, paymentResponsible(random.nextInt(PAYMENT_RESPONSIBLES)));
+    }
+
+    // one month range
+    private int between(final PreparedStatement ps, final String key) throws SQLException {
+        final Date from = day(random.nextInt(DAYS));
+        final Date to = new Date(from.getTime() + 30 * DAY);
+        ps.setString(1, key);
+        ps.setDate(2, from);
+        ps.setDate(3, to);
+        ps.setDate(4, from);
+        ps.setDate(5, to);
+        return count(ps);
+    }
+
+    // one month range
+    private int overlap(final PreparedStatement ps, final String key) throws SQLException {
+        final Date from = day(random.nextInt(DAYS));
+        final Date to = new Date(from.getTime() + 30 * DAY);
+        ps.setString(1, key);
+        ps.setDate(2, to);
+        ps.setDate(3, from);
+        return count(ps);
+    }
+
+    //
+    private static int count(final PreparedStatement ps) throws SQLException {
+        final ResultSet rs = ps.executeQuery();
+        int n = 0;
+        while (rs.next()) {
+            n++;
+        }
+        rs.close();
+        return n;
+    }
+
+    // same layout as the production table, indexes as declared on InvoiceDataEntity
+    private void createTable(final String name, final boolean indexed) throws SQLException {
+        final Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE " + name + " (id BIGINT PRIMARY KEY, created_by VARCHAR(64) NOT NULL, "
+                + "created_timestamp TIMESTAMP NOT NULL, end_date DATE NOT NULL, payment_responsible VARCHAR(64) NOT NULL, "
+                + "start_date DATE NOT NULL, supplier_id VARCHAR(64) NOT NULL, total_amount DECIMAL(12,2))");
+        if (indexed) {
+            statement.execute("CREATE INDEX " + name + "_query_ix_1 ON " + name + " (supplier_id, start_date, end_date)");
+            statement.execute("CREATE INDEX " + name + "_query_ix_2 ON " + name + " (payment_responsible, start_date, end_date)");
+        }
+        statement.close();
+
+        final Random data = new Random(42);
+        final PreparedStatement insert = connection.prepareStatement("INSERT INTO " + name + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < rows; i++) {
+            final Date start = day(data.nextInt(DAYS));
+            insert.setLong(1, i);
+            insert.setString(2, "benchmark");
+            insert.setTimestamp(3, now);
+            insert.setDate(4, new Date(start.getTime() + data.nextInt(31) * DAY));
+            insert.setString(5, paymentResponsible(data.nextInt(PAYMENT_RESPONSIBLES)));
+            insert.setDate(6, start);
+            insert.setString(7, supplierId(data.nextInt(SUPPLIERS)));
+            insert.setBigDecimal(8, BigDecimal.valueOf(data.nextInt(100000), 2));
+            insert.addBatch();
+            if (i % 1000 == 999) {
+                insert.executeBatch();
+            }
+        }
+        insert.executeBatch();
+        insert.close();
+    }
+
+    //
+    private static Date day(final int n) {
+        return new Date(EPOCH + n * DAY);
+    }
+
+    //
+    private static String supplierId(final int n) {
+        return "supplier-" + n;
+    }
+
+    //
+    private static String paymentResponsible(final int n) {
+        return "payment-responsible-" + n;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InvoiceDataQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -26,7 +26,13 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,6 +50,8 @@ import se.sll.invoicedata.core.support.TestSupport;
  */
 public class InvoiceDataRepositoryTest extends TestSupport {
 
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
     
     @Test
     @Transactional
@@ -57,15 +65,63 @@ public class InvoiceDataRepositoryTest extends TestSupport {
         getInvoiceDataRepository().save(e);
         getInvoiceDataRepository().flush();
         
-        final List<InvoiceDataEntity> l = getInvoiceDataRepository().getInvoiceDataBySupplierIdAndPaymentResponsibleBetweenDates(e.getSupplierId(), e.getPaymentResponsible(), CoreUtil.MIN_DATE, new Date());
+        final List<InvoiceDataHeaderRow> l = findHeaderRows(e.getSupplierId(), e.getPaymentResponsible(), CoreUtil.MIN_DATE, new Date());
         
         assertNotNull(l);
         assertEquals(1, l.size());
-        assertEquals(l.get(0).getStartDate(), b.getStartTime());
-        assertEquals(l.get(0).getEndDate(), b.getEndTime());
+        // dates are stored by day
+        assertEquals(CoreUtil.floorDate(b.getStartTime()).getTime(), l.get(0).getStartDate().getTime());
+        assertEquals(CoreUtil.floorDate(b.getEndTime()).getTime(), l.get(0).getEndDate().getTime());
     }
     
     
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testFind_Overlapping_Date_Range() {
+        final InvoiceDataEntity e = createSampleInvoiceDataEntity();
+        e.setSupplierId("overlap.001");
+        e.setPaymentResponsible("overlap.HSF");
+        final BusinessEventEntity b = createSampleBusinessEventEntity();
+        b.setSupplierId(e.getSupplierId());
+        b.setPaymentResponsible(e.getPaymentResponsible());
+        assertTrue(e.addBusinessEventEntity(b));
+        
+        getInvoiceDataRepository().save(e);
+        getInvoiceDataRepository().flush();
+        
+        final long start = CoreUtil.floorDate(b.getStartTime()).getTime();
+        final long end = CoreUtil.floorDate(b.getEndTime()).getTime();
+        
+        // range within the invoice data period
+        assertEquals(1, findHeaderRows(e.getSupplierId(), null, new Date(start), new Date(end)).size());
+        // range overlapping the start date
+        assertEquals(1, findHeaderRows(null, e.getPaymentResponsible(), CoreUtil.MIN_DATE, new Date(start)).size());
+        // range after the end date (dates are compared by day)
+        final Date dayAfter = new Date(end + TimeUnit.DAYS.toMillis(1));
+        assertEquals(0, findHeaderRows(e.getSupplierId(), null, dayAfter, CoreUtil.MAX_DATE).size());
+    }
+
+    @Test
+    public void testFind_Header_Rows_From_Query_Cache() {
+        final InvoiceDataEntity e = createSampleInvoiceDataEntity();
+        e.setSupplierId("query-cache.001");
+        final BusinessEventEntity b = createSampleBusinessEventEntity();
+        b.setSupplierId(e.getSupplierId());
+        assertTrue(e.addBusinessEventEntity(b));
+        final InvoiceDataEntity saved = getInvoiceDataRepository().save(e);
+        try {
+            final Statistics statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+            assertEquals(1, findHeaderRows(e.getSupplierId(), null, CoreUtil.MIN_DATE, CoreUtil.MAX_DATE).size());
+            final long hits = statistics.getQueryCacheHitCount();
+            assertEquals(1, findHeaderRows(e.getSupplierId(), null, CoreUtil.MIN_DATE, CoreUtil.MAX_DATE).size());
+            assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+        } finally {
+            getBusinessEventRepository().delete(saved.getBusinessEventEntities());
+            getInvoiceDataRepository().delete(saved.getId());
+        }
+    }
+    
     @Test(expected=IllegalStateException.class)
     @Transactional
     @Rollback(true)
@@ -143,13 +199,24 @@ public class InvoiceDataRepositoryTest extends TestSupport {
         getInvoiceDataRepository().save(ie);
         getInvoiceDataRepository().flush();
         
-        List<InvoiceDataEntity> l = getInvoiceDataRepository().getInvoiceDataBySupplierIdAndPaymentResponsibleBetweenDates(be.getSupplierId(), be.getPaymentResponsible(), CoreUtil.MIN_DATE, new Date());
+        List<InvoiceDataHeaderRow> l = findHeaderRows(be.getSupplierId(), be.getPaymentResponsible(), CoreUtil.MIN_DATE, new Date());
         
         assertEquals(1, l.size());
         
-        assertEquals(1, l.get(0).getBusinessEventEntities().size());
+        assertEquals(1, getInvoiceDataRepository().findOne(l.get(0).getId()).getBusinessEventEntities().size());
         
         // should be one pending left
         assertEquals(1, getBusinessEventRepository().findBySupplierIdAndPendingIsTrue(ie.getSupplierId()).size());
     }    
+
+    // all header rows overlapping a date range
+    private List<InvoiceDataHeaderRow> findHeaderRows(String supplierId, String paymentResponsible, Date fromDate, Date toDate) {
+        if (paymentResponsible == null) {
+            return getInvoiceDataRepository().findHeaderRowsBySupplierIdAfterKey(supplierId, fromDate, toDate, CoreUtil.MIN_DATE, Long.MIN_VALUE, null);
+        } else if (supplierId == null) {
+            return getInvoiceDataRepository().findHeaderRowsByPaymentResponsibleAfterKey(paymentResponsible, fromDate, toDate, CoreUtil.MIN_DATE, Long.MIN_VALUE, null);
+        }
+        return getInvoiceDataRepository().findHeaderRowsBySupplierIdAndPaymentResponsibleAfterKey(supplierId, paymentResponsible, 
+                fromDate, toDate, CoreUtil.MIN_DATE, Long.MIN_VALUE, null);
+    }
 }
@@ -23,17 +23,22 @@ import static org.junit.Assert.*;
 import static se.sll.invoicedata.core.service.impl.CoreUtil.copyGenericLists;
 import static se.sll.invoicedata.core.service.impl.CoreUtil.copyProperties;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.junit.Test;
 
+import riv.sll.invoicedata._1.DiscountItem;
 import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.Item;
 import riv.sll.invoicedata._1.RegisteredEvent;
 import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
 import se.sll.invoicedata.core.model.entity.ItemEntity;
 import se.sll.invoicedata.core.support.TestSupport;
 
@@ -72,6 +77,15 @@ public class CoreUtilTest extends TestSupport {
         assertTrue(date.compareTo(CoreUtil.floorDate(date)) >= 0);
     }
     
+    @Test
+    public void testPartition() {
+        final List<List<Integer>> chunks = CoreUtil.partition(Arrays.asList(1, 2, 3, 4, 5), 2);
+        assertEquals(3, chunks.size());
+        assertEquals(Arrays.asList(1, 2), chunks.get(0));
+        assertEquals(Arrays.asList(5), chunks.get(2));
+        assertTrue(CoreUtil.partition(Collections.<Integer>emptyList(), 2).isEmpty());
+    }
+
     @Test
     public void testAppUtil_copyProperties2() {
         copyProperties(new String(), String.class);        
@@ -123,4 +137,53 @@ public class CoreUtilTest extends TestSupport {
     	assertEquals(cal.get(Calendar.SECOND), newCal.get(Calendar.SECOND));
     	
     }
+
+    @Test
+    public void testStaticMappers_same_as_copyProperties() {
+        final Event event = createSampleEvent();
+        
+        final BusinessEventEntity be = EntityBeanConverter.toBusinessEventEntity(event);
+        final BusinessEventEntity be2 = copyProperties(event, BusinessEventEntity.class);
+        assertEquals(be2.getEventId(), be.getEventId());
+        assertEquals(be2.getSupplierId(), be.getSupplierId());
+        assertEquals(be2.getAcknowledgedTime(), be.getAcknowledgedTime());
+        assertEquals(be2.getStartTime(), be.getStartTime());
+        assertEquals(be2.getEndTime(), be.getEndTime());
+        assertEquals(1, be.getItemEntities().size());
+        
+        final DiscountItemEntity discountItemEntity = EntityBeanConverter.toDiscountItemEntity(createDiscountItem());
+        be.addDiscountItemEntity(discountItemEntity);
+        
+        final RegisteredEvent e = EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(be);
+        final RegisteredEvent e2 = copyProperties(be, RegisteredEvent.class);
+        assertEquals(e2.getEventId(), e.getEventId());
+        assertEquals(e2.getHealthCareCommission(), e.getHealthCareCommission());
+        assertEquals(e2.getAcknowledgementId(), e.getAcknowledgementId());
+        assertEquals(e2.getAcknowledgedTime(), e.getAcknowledgedTime());
+        assertEquals(e2.getStartTime(), e.getStartTime());
+        assertEquals(e2.getEndTime(), e.getEndTime());
+        assertEquals(e2.getTotalAmount(), e.getTotalAmount());
+        assertEquals(e2.isCredit(), e.isCredit());
+        assertEquals(event.getItemList().get(0).getPrice(), e.getItemList().get(0).getPrice());
+        
+        assertEquals(1, e.getDiscountItemList().size());
+        final DiscountItem discountItem = e.getDiscountItemList().get(0);
+        assertEquals(discountItemEntity.getTotalAmount(), discountItem.getDiscountedPrice());
+        assertEquals(1, discountItem.getReferenceItemList().size());
+    }
+    
+    @Test
+    public void testStaticMappers_credit_entity() {
+        final BusinessEventEntity be = createSampleBusinessEventEntity();
+        be.addItemEntity(createSampleItemEntity());
+        
+        final BusinessEventEntity credit = EntityBeanConverter.toCreditEntity(be);
+        assertTrue(credit.isCredit());
+        assertNull(credit.getInvoiceData());
+        assertEquals(be.getEventId(), credit.getEventId());
+        assertEquals(be.getStartTime(), credit.getStartTime());
+        assertEquals(1, credit.getItemEntities().size());
+        assertEquals(be.getTotalAmount(), credit.getTotalAmount());
+        assertTrue(credit == credit.getItemEntities().get(0).getEvent());
+    }
 }
@@ -22,13 +22,23 @@
  */
 package se.sll.invoicedata.core.service.impl;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
 import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata._1.InvoiceData;
+import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
+import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.support.TestSupport;
@@ -96,4 +106,62 @@ public class CreateInvoiceDataServiceImplTest extends TestSupport {
         invoiceDataService.createInvoiceData(createReq);
     }
     
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testCreateInvoiceData_Assigns_Events_And_Totals() {
+        final String supplierId = "setbased.001";
+        registerEvents(supplierId, Arrays.asList(new String[] { "setbased-1", "setbased-2", "setbased-3" }));
+
+        final String referenceId = invoiceDataService.createInvoiceData(createRequest(supplierId));
+        
+        final InvoiceData invoiceData = invoiceDataService.getInvoiceDataByReferenceId(referenceId);
+        assertEquals(3, invoiceData.getRegisteredEventList().size());
+        assertEquals(0, BigDecimal.valueOf(2100.0).compareTo(invoiceData.getTotalAmount()));
+        assertTrue(getPendingEvents(supplierId).isEmpty());
+        
+        // re-register an invoiced event, i.e. a credit and a new pending event
+        registerEvents(supplierId, Arrays.asList(new String[] { "setbased-2" }));
+        
+        final CreateInvoiceDataRequest createReq = createRequest(supplierId);
+        assertEquals(2, createReq.getAcknowledgementIdList().size());
+        final InvoiceData creditInvoiceData = invoiceDataService.getInvoiceDataByReferenceId(invoiceDataService.createInvoiceData(createReq));
+        assertEquals(2, creditInvoiceData.getRegisteredEventList().size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(creditInvoiceData.getTotalAmount()));
+        assertTrue(getPendingEvents(supplierId).isEmpty());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testCreateInvoiceData_In_Chunks() {
+        // event.acknowledgementIdChunkSize = 2 in the test context, see invoice-data-test.properties
+        final String supplierId = "setbased.002";
+        registerEvents(supplierId, Arrays.asList(new String[] { "chunk-1", "chunk-2", "chunk-3", "chunk-4", "chunk-5" }));
+
+        final String referenceId = invoiceDataService.createInvoiceData(createRequest(supplierId));
+        final InvoiceData invoiceData = invoiceDataService.getInvoiceDataByReferenceId(referenceId);
+        assertEquals(5, invoiceData.getRegisteredEventList().size());
+        assertEquals(0, BigDecimal.valueOf(3500.0).compareTo(invoiceData.getTotalAmount()));
+        assertTrue(getPendingEvents(supplierId).isEmpty());
+    }
+
+    //
+    private List<RegisteredEvent> getPendingEvents(final String supplierId) {
+        final GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId(supplierId);
+        return invoiceDataService.getAllUnprocessedBusinessEvents(getIDRequest);
+    }
+
+    //
+    private CreateInvoiceDataRequest createRequest(final String supplierId) {
+        final CreateInvoiceDataRequest createReq = new CreateInvoiceDataRequest();
+        createReq.setSupplierId(supplierId);
+        createReq.setPaymentResponsible("HSF");
+        createReq.setCreatedBy("testCreateInvoiceData_Assigns_Events_And_Totals");
+        for (final RegisteredEvent e : getPendingEvents(supplierId)) {
+            createReq.getAcknowledgementIdList().add(e.getAcknowledgementId());
+        }
+        return createReq;
+    }
 }
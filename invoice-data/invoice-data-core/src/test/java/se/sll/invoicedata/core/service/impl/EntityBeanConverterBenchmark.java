@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata._1.Item;
+import riv.sll.invoicedata._1.RegisteredEvent;
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.ItemEntity;
+
+/**
+ * Micro benchmark of the static mappers in {@link EntityBeanConverter} versus the 
+ * reflective {@link CoreUtil#copyProperties(Object, Class)} path. <p>
+ * 
+ * Not a unit test, run with <code>mvn test-compile exec:java -Dexec.classpathScope=test 
+ * -Dexec.mainClass=se.sll.invoicedata.core.service.impl.EntityBeanConverterBenchmark</code>, 
+ * or from the IDE.
+ * 
+ * @author Peter
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBeanConverterBenchmark {
+
+    private BusinessEventEntity entity;
+    private Event event;
+
+    @Setup
+    public void setup() {
+        entity = new BusinessEventEntity();
+        entity.setEventId("event-123");
+        entity.setHealthcareFacility("HSA_ID_001");
+        entity.setRefContractId("Contract_1");
+        entity.setAcknowledgementId("ack-123");
+        entity.setAcknowledgedBy("Peter Larsson");
+        entity.setSupplierName("Dummy");
+        entity.setAcknowledgedTime(new Date());
+        entity.setHealthCareCommission("BVC");
+        entity.setServiceCode("XYZ");
+        entity.setPaymentResponsible("HSF");
+        entity.setSupplierId("12342");
+        entity.setStartTime(new Date());
+        entity.setEndTime(new Date());
+        for (int i = 0; i < 3; i++) {
+            final ItemEntity item = new ItemEntity();
+            item.setItemId("IT10" + i);
+            item.setDescription("Item is kind of a product");
+            item.setQty(BigDecimal.valueOf(2.0));
+            item.setPrice(BigDecimal.valueOf(350.0));
+            entity.addItemEntity(item);
+        }
+        event = EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(entity);
+    }
+
+    @Benchmark
+    public RegisteredEvent toRegisteredEvent_static() {
+        return EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(entity);
+    }
+
+    @Benchmark
+    public RegisteredEvent toRegisteredEvent_dozer() {
+        final RegisteredEvent registeredEvent = CoreUtil.copyProperties(entity, RegisteredEvent.class);
+        CoreUtil.copyGenericLists(registeredEvent.getItemList(), entity.getItemEntities(), Item.class);
+        return registeredEvent;
+    }
+
+    @Benchmark
+    public BusinessEventEntity toBusinessEventEntity_static() {
+        return EntityBeanConverter.toBusinessEventEntity(event);
+    }
+
+    @Benchmark
+    public BusinessEventEntity toBusinessEventEntity_dozer() {
+        final BusinessEventEntity businessEventEntity = CoreUtil.copyProperties(event, BusinessEventEntity.class);
+        for (final Item item : event.getItemList()) {
+            businessEventEntity.addItemEntity(CoreUtil.copyProperties(item, ItemEntity.class));
+        }
+        return businessEventEntity;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EntityBeanConverterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -24,9 +24,18 @@ package se.sll.invoicedata.core.service.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
@@ -37,6 +46,7 @@ import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 import se.sll.invoicedata.core.support.TestSupport;
 
 /**
@@ -48,6 +58,9 @@ public class GetInvoiceDataServiceImplTest extends TestSupport {
     @Autowired
     private InvoiceDataService invoiceDataService;
 
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     @Transactional
     @Rollback(true)
@@ -107,4 +120,84 @@ public class GetInvoiceDataServiceImplTest extends TestSupport {
         invoiceDataService.getAllUnprocessedBusinessEvents(getIDRequest);
     }
 
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testGetUnprocessedBusinessEventsPage() {
+        final Event e = createSampleEvent();
+        for (int i = 0; i < 5; i++) {
+            e.setEventId("eventpage." + i);
+            invoiceDataService.registerEvent(e);
+        }
+
+        GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId(e.getSupplierId());
+        getIDRequest.setPageSize(2);
+
+        final Set<String> eventIds = new HashSet<String>();
+        int pages = 0;
+        ResultPage<RegisteredEvent> page;
+        do {
+            page = invoiceDataService.getUnprocessedBusinessEventsPage(getIDRequest);
+            for (final RegisteredEvent registeredEvent : page.getContent()) {
+                eventIds.add(registeredEvent.getEventId());
+            }
+            getIDRequest.setContinuationToken(page.getContinuationToken());
+            pages++;
+        } while (page.getContinuationToken() != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, eventIds.size());
+        assertEquals(1, page.getContent().size());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testGetUnprocessedBusinessEventsPage_Last_Page() {
+        final Event e = createSampleEvent();
+        invoiceDataService.registerEvent(e);
+
+        GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId(e.getSupplierId());
+        getIDRequest.setPageSize(1);
+
+        final ResultPage<RegisteredEvent> page = invoiceDataService.getUnprocessedBusinessEventsPage(getIDRequest);
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getContinuationToken());
+    }
+
+    @Test(expected = InvoiceDataServiceException.class)
+    public void testGetUnprocessedBusinessEventsPage_Invalid_Token() {
+        GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId("12342");
+        getIDRequest.setContinuationToken("invalid");
+        invoiceDataService.getUnprocessedBusinessEventsPage(getIDRequest);
+    }
+
+    @Test
+    public void testGetAllUnprocessedBusinessEvents_Read_Only() {
+        // not transactional, i.e. the query runs in its own read-only transaction
+        final Event e = createSampleEvent();
+        e.setSupplierId("read-only-" + UUID.randomUUID());
+        invoiceDataService.registerEvent(e);
+
+        GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId(e.getSupplierId());
+
+        try {
+            final Statistics statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+            final long flushCount = statistics.getFlushCount();
+            final List<RegisteredEvent> regEventList = invoiceDataService.getAllUnprocessedBusinessEvents(getIDRequest);
+
+            assertEquals(1, regEventList.size());
+            assertEquals(e.getItemList().size(), regEventList.get(0).getItemList().size());
+            // manual flush mode, nothing flushed (dirty-checked) at commit
+            assertEquals(flushCount, statistics.getFlushCount());
+        } finally {
+            // committed, i.e. not rolled back
+            getBusinessEventRepository().delete(getBusinessEventRepository().findBySupplierIdAndPendingIsTrue(e.getSupplierId()));
+        }
+    }
+
 }
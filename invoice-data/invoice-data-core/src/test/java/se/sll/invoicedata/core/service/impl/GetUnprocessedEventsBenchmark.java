@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.framework.Advised;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata._1.RegisteredEvent;
+import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.service.InvoiceDataService;
+
+/**
+ * Benchmark of fetching all unprocessed events of a supplier in a read-only transaction versus 
+ * the former read-write transaction, i.e. with all loaded events and items dirty-checked at commit. <p>
+ * 
+ * The <code>readWrite</code> variant wraps the call in a read-write transaction, which the service joins. 
+ * Run with <code>-prof gc</code> to also compare allocations, since no entity snapshots are kept in read-only mode. <p>
+ * 
+ * Not a unit test, run with <code>mvn test-compile exec:java -Dexec.classpathScope=test 
+ * -Dexec.mainClass=se.sll.invoicedata.core.service.impl.GetUnprocessedEventsBenchmark</code>, 
+ * or from the IDE.
+ * 
+ * @author Peter
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx1g" })
+public class GetUnprocessedEventsBenchmark {
+
+    static final String SUPPLIER_ID = "benchmark.supplier";
+
+    @Param({ "readOnly", "readWrite" })
+    public String transaction;
+
+    @Param({ "1000", "10000" })
+    public int events;
+
+    private GenericXmlApplicationContext context;
+    private InvoiceDataService invoiceDataService;
+    private TransactionTemplate readWrite;
+    private GetInvoiceDataRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.load("classpath:/invoice-data-service.xml");
+        context.refresh();
+        invoiceDataService = context.getBean(InvoiceDataService.class);
+        readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // room for all generated events
+        final Object target = ((Advised) invoiceDataService).getTargetSource().getTarget();
+        ReflectionTestUtils.setField(target, "eventMaxFindResultSize", events + 1);
+
+        final List<Event> batch = new ArrayList<Event>();
+        for (int n = 0; n < events; n++) {
+            batch.add(createEvent(n));
+            if (batch.size() == 1000) {
+                invoiceDataService.registerEvents(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            invoiceDataService.registerEvents(batch);
+        }
+
+        request = new GetInvoiceDataRequest();
+        request.setSupplierId(SUPPLIER_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<RegisteredEvent> getAllUnprocessedBusinessEvents() {
+        if ("readWrite".equals(transaction)) {
+            return readWrite.execute(new TransactionCallback<List<RegisteredEvent>>() {
+                @Override
+                public List<RegisteredEvent> doInTransaction(TransactionStatus status) {
+                    return invoiceDataService.getAllUnprocessedBusinessEvents(request);
+                }
+            });
+        }
+        return invoiceDataService.getAllUnprocessedBusinessEvents(request);
+    }
+
+    //
+    private static Event createEvent(final int n) {
+        final BusinessEventEntity entity = new BusinessEventEntity();
+        entity.setEventId("benchmark-event-" + n);
+        entity.setHealthcareFacility("HSA_ID_001");
+        entity.setRefContractId("Contract_1");
+        entity.setAcknowledgementId(UUID.randomUUID().toString());
+        entity.setAcknowledgedBy("Peter Larsson");
+        entity.setSupplierName("Dummy");
+        entity.setAcknowledgedTime(new Date());
+        entity.setHealthCareCommission("BVC");
+        entity.setServiceCode("XYZ");
+        entity.setPaymentResponsible("HSF");
+        entity.setSupplierId(SUPPLIER_ID);
+        entity.setStartTime(new Date());
+        entity.setEndTime(new Date());
+        for (int i = 0; i < 3; i++) {
+            final ItemEntity item = new ItemEntity();
+            item.setItemId("IT10" + i);
+            item.setDescription("Item is kind of a product");
+            item.setQty(BigDecimal.valueOf(2.0));
+            item.setPrice(BigDecimal.valueOf(350.0));
+            entity.addItemEntity(item);
+        }
+        return EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(entity);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GetUnprocessedEventsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.sll.invoicedata.core.service.HealthService;
+import se.sll.invoicedata.core.service.dto.HealthStatus;
+import se.sll.invoicedata.core.support.TestSupport;
+
+/**
+ * Tests cached health checks.
+ * 
+ * @author Peter
+ *
+ */
+public class HealthServiceImplTest extends TestSupport {
+
+    @Autowired
+    private HealthService healthService;
+
+    @Autowired
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Test
+    public void testCheck_Cached() {
+        final HealthStatus status = healthService.check();
+        assertTrue(status.isHealthy());
+        assertNull(status.getMessage());
+        assertSame(status, healthService.getHealthStatus());
+        assertTrue(healthService.isReady());
+    }
+
+    @Test
+    public void testReady_Stale_Or_Failed() {
+        final Object saved = healthService.getHealthStatus();
+        try {
+            ReflectionTestUtils.setField(healthService, "healthStatus", 
+                    new HealthStatus(true, null, System.currentTimeMillis() - 3600 * 1000L, 1L));
+            assertFalse(healthService.isReady());
+
+            ReflectionTestUtils.setField(healthService, "healthStatus", 
+                    new HealthStatus(false, HealthServiceImpl.DATABASE_UNAVAILABLE, System.currentTimeMillis(), 1L));
+            assertFalse(healthService.isReady());
+        } finally {
+            ReflectionTestUtils.setField(healthService, "healthStatus", saved);
+        }
+    }
+    @Test
+    public void testHealthStatus_JSON() throws Exception {
+        final String message = "database: \"invoice_data\" C:\\db\nfailed\u0001";
+        final JsonNode json = new ObjectMapper().readTree(new HealthStatus(false, message, System.currentTimeMillis(), 2L).toString());
+        assertFalse(json.get("healthy").asBoolean());
+        assertEquals(message, json.get("message").asText());
+        assertEquals(2L, json.get("elapsed").asLong());
+
+        assertTrue(new ObjectMapper().readTree(healthService.check().toString()).get("message").isNull());
+    }
+
+    @Test
+    public void testScheduler_Not_Shared_With_Jobs() {
+        // a long running batch job must not delay health checks
+        assertTrue(((ScheduledThreadPoolExecutor) scheduler.getScheduledExecutor()).getCorePoolSize() > 1);
+    }
+
+}
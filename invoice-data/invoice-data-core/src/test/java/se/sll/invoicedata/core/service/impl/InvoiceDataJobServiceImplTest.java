@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import riv.sll.invoicedata._1.Event;
+import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
+import se.sll.invoicedata.core.model.entity.JobEntity;
+import se.sll.invoicedata.core.model.repository.JobRepository;
+import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
+import se.sll.invoicedata.core.service.InvoiceDataJobService;
+import se.sll.invoicedata.core.service.InvoiceDataService;
+import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+import se.sll.invoicedata.core.service.dto.InvoiceDataJob;
+import se.sll.invoicedata.core.support.TestSupport;
+
+/**
+ * Unit tests InvoiceDataJobService, not transactional since jobs are committed by worker threads.
+ * 
+ * @author Peter
+ *
+ */
+public class InvoiceDataJobServiceImplTest extends TestSupport {
+
+    @Autowired
+    private InvoiceDataJobService invoiceDataJobService;
+
+    @Autowired
+    private InvoiceDataService invoiceDataService;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Test
+    public void testSubmitCreateInvoiceData_Completed() throws InterruptedException {
+        final CreateInvoiceDataRequest request = createRequest("job.001", 3);
+
+        final String jobId = invoiceDataJobService.submitCreateInvoiceData(request);
+        assertTrue(invoiceDataJobService.isJobId(jobId));
+        assertFalse(invoiceDataJobService.isJobId("1"));
+
+        final InvoiceDataJob job = waitFor(jobId);
+        assertEquals(InvoiceDataJob.Status.COMPLETED, job.getStatus());
+        assertNotNull(job.getReferenceId());
+        assertEquals(3, invoiceDataService.getInvoiceDataByReferenceId(job.getReferenceId()).getRegisteredEventList().size());
+
+        // stored, i.e. visible to all nodes
+        final JobEntity stored = jobRepository.findOne(jobId);
+        assertEquals(JobEntity.COMPLETED, stored.getStatus());
+        assertEquals(job.getReferenceId(), stored.getReferenceId());
+    }
+
+    @Test
+    public void testSubmitCreateInvoiceData_Failed() throws InterruptedException {
+        final CreateInvoiceDataRequest request = createRequest("job.002", 2);
+        request.getAcknowledgementIdList().set(0, "zero");
+
+        final InvoiceDataJob job = waitFor(invoiceDataJobService.submitCreateInvoiceData(request));
+        assertEquals(InvoiceDataJob.Status.FAILED, job.getStatus());
+        assertEquals(InvoiceDataErrorCodeEnum.VALIDATION_ERROR, job.getFailure().getCode());
+    }
+
+    @Test
+    public void testGetJob_Lost_After_Timeout() {
+        // submitted long ago to a node that never finished it
+        final JobEntity job = new JobEntity(InvoiceDataJobServiceImpl.JOB_ID_PREFIX + UUID.randomUUID(), "job.003", "crashed@node");
+        ReflectionTestUtils.setField(job, "submittedTime", new Date(System.currentTimeMillis() - 24 * 3600 * 1000L));
+        jobRepository.save(job);
+        try {
+            final InvoiceDataJob lost = invoiceDataJobService.getJob(job.getJobId());
+            assertEquals(InvoiceDataJob.Status.LOST, lost.getStatus());
+            assertTrue(lost.isFinished());
+        } finally {
+            jobRepository.delete(job.getJobId());
+        }
+    }
+
+    @Test
+    public void testGetJob_Running_Timeout_From_Start() {
+        // queued long ago, but just started
+        final JobEntity job = new JobEntity(InvoiceDataJobServiceImpl.JOB_ID_PREFIX + UUID.randomUUID(), "job.005", "busy@node");
+        ReflectionTestUtils.setField(job, "submittedTime", new Date(System.currentTimeMillis() - 24 * 3600 * 1000L));
+        job.started();
+        jobRepository.save(job);
+        try {
+            assertEquals(InvoiceDataJob.Status.RUNNING, invoiceDataJobService.getJob(job.getJobId()).getStatus());
+        } finally {
+            jobRepository.delete(job.getJobId());
+        }
+    }
+
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void testJob_Stale_Update_Rejected() {
+        final JobEntity job = jobRepository.save(new JobEntity(InvoiceDataJobServiceImpl.JOB_ID_PREFIX + UUID.randomUUID(), "job.006", "busy@node"));
+        try {
+            final JobEntity stale = jobRepository.findOne(job.getJobId());
+            job.lost();
+            jobRepository.save(job);
+            // must not silently overwrite the lost report
+            stale.completed("1");
+            jobRepository.save(stale);
+        } finally {
+            jobRepository.delete(job.getJobId());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void testUnfinished_Jobs_Lost_At_Shutdown() {
+        final JobEntity queued = jobRepository.save(new JobEntity(InvoiceDataJobServiceImpl.JOB_ID_PREFIX + UUID.randomUUID(), "job.004", "stopped@node"));
+        final JobEntity completed = new JobEntity(InvoiceDataJobServiceImpl.JOB_ID_PREFIX + UUID.randomUUID(), "job.004", "stopped@node");
+        completed.completed("1");
+        jobRepository.save(completed);
+        jobRepository.flush();
+
+        assertEquals(1, jobRepository.updateUnfinishedByOwnerToLost("stopped@node", new Date()));
+        assertEquals(InvoiceDataJob.Status.LOST, invoiceDataJobService.getJob(queued.getJobId()).getStatus());
+        assertEquals(InvoiceDataJob.Status.COMPLETED, invoiceDataJobService.getJob(completed.getJobId()).getStatus());
+    }
+
+    @Test(expected = InvoiceDataServiceException.class)
+    public void testGetJob_Not_Found() {
+        invoiceDataJobService.getJob("job-unknown");
+    }
+
+    // polls a job until finished
+    private InvoiceDataJob waitFor(final String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            final InvoiceDataJob job = invoiceDataJobService.getJob(jobId);
+            if (job.isFinished()) {
+                return job;
+            }
+            Thread.sleep(100L);
+        }
+        throw new IllegalStateException("Job " + jobId + " not finished");
+    }
+
+    // registers (commits) events with a unique payment responsible, and returns a request to invoice them
+    private CreateInvoiceDataRequest createRequest(final String supplierId, final int n) {
+        final CreateInvoiceDataRequest request = new CreateInvoiceDataRequest();
+        request.setSupplierId(supplierId);
+        request.setPaymentResponsible("job." + UUID.randomUUID().toString());
+        request.setCreatedBy("InvoiceDataJobServiceImplTest");
+        for (int i = 0; i < n; i++) {
+            final Event e = createSampleEvent();
+            e.setEventId(UUID.randomUUID().toString());
+            e.setSupplierId(supplierId);
+            e.setPaymentResponsible(request.getPaymentResponsible());
+            invoiceDataService.registerEvent(e);
+            request.getAcknowledgementIdList().add(e.getAcknowledgementId());
+        }
+        return request;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.DiscountItemEntity;
+import se.sll.invoicedata.core.model.entity.InvoiceDataEntity;
+import se.sll.invoicedata.core.model.entity.ReferenceItemEntity;
+import se.sll.invoicedata.core.support.TestSupport;
+
+/**
+ * Unit tests JobService.
+ * 
+ * @author Peter
+ *
+ */
+public class JobServiceTest extends TestSupport {
+
+    @Autowired
+    private JobService jobService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    //
+    private static Date date(int year) {
+        final Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, Calendar.JANUARY, 1);
+        return cal.getTime();
+    }
+    
+    @Test
+    public void testRemoveOldData_In_Chunks() {
+        final List<Long> ids = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            final BusinessEventEntity e = createSampleBusinessEventEntity();
+            e.setEventId("purge-" + i);
+            e.setSupplierId("purge.001");
+            e.setStartTime(date(1990));
+            e.setEndTime(date(1990));
+            e.addItemEntity(createSampleItemEntity());
+            final DiscountItemEntity d = new DiscountItemEntity();
+            d.setDescription("Discount");
+            d.setDiscountInPercentage(50);
+            d.setOrderOfDiscount(1);
+            final ReferenceItemEntity r = new ReferenceItemEntity();
+            r.setRefItemId(e.getItemEntities().get(0).getItemId());
+            r.setQty(1);
+            d.addReferenceItemEntity(r);
+            e.addDiscountItemEntity(d);
+
+            final InvoiceDataEntity invoiceData = createSampleInvoiceDataEntity();
+            invoiceData.setSupplierId(e.getSupplierId());
+            invoiceData.addBusinessEventEntity(e);
+            ids.add(getInvoiceDataRepository().save(invoiceData).getId());
+        }
+
+        final int batchSize = jobService.getPurgeBatchSize();
+        jobService.setPurgeBatchSize(2);
+        try {
+            assertTrue(jobService.removeOldData(date(1991)) >= 3);
+        } finally {
+            jobService.setPurgeBatchSize(batchSize);
+        }
+        
+        assertTrue(jobService.getPurgedChunks() >= 2);
+        assertTrue(jobService.getPurgedEvents() >= 3);
+        assertTrue(jobService.getPurgedItems() >= 9);
+        assertTrue(!jobService.isPurgeRunning());
+        for (final Long id : ids) {
+            assertNull(getInvoiceDataRepository().findOne(id));
+        }
+        assertEquals(0, getBusinessEventRepository().findByEventIdInAndPendingIsNullAndCreditedIsNullAndCreditIsNull(Arrays.asList("purge-0", "purge-1", "purge-2")).size());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testBackfillTotalAmounts() {
+        final BusinessEventEntity e = createSampleBusinessEventEntity();
+        e.setEventId("backfill-0");
+        e.addItemEntity(createSampleItemEntity());
+        final DiscountItemEntity d = new DiscountItemEntity();
+        d.setDescription("Discount");
+        d.setDiscountInPercentage(50);
+        d.setOrderOfDiscount(1);
+        final ReferenceItemEntity r = new ReferenceItemEntity();
+        r.setRefItemId(e.getItemEntities().get(0).getItemId());
+        r.setQty(1);
+        d.addReferenceItemEntity(r);
+        e.addDiscountItemEntity(d);
+        final Long id = getBusinessEventRepository().saveAndFlush(e).getId();
+        final BigDecimal expected = e.getTotalAmount();
+        assertEquals(0, expected.compareTo(totalAmount(id)));
+
+        // as registered before total amounts were stored
+        entityManager.createQuery("UPDATE invoice_data_event e SET e.totalAmount = NULL WHERE e.id = :id").setParameter("id", id).executeUpdate();
+        entityManager.createQuery("UPDATE DiscountItemEntity d SET d.totalAmount = NULL").executeUpdate();
+        entityManager.clear();
+        assertNull(totalAmount(id));
+
+        assertTrue(jobService.backfillTotalAmounts() >= 1);
+        assertTrue(jobService.isBackfillCompleted());
+        entityManager.clear();
+
+        assertEquals(0, expected.compareTo(totalAmount(id)));
+        assertNotNull(entityManager.createQuery("SELECT d.totalAmount FROM DiscountItemEntity d WHERE d.event.id = :id").setParameter("id", id).getSingleResult());
+        assertEquals(0, jobService.backfillTotalAmounts());
+    }
+
+    //
+    private BigDecimal totalAmount(final Long id) {
+        return (BigDecimal) entityManager.createQuery("SELECT e.totalAmount FROM invoice_data_event e WHERE e.id = :id").setParameter("id", id).getSingleResult();
+    }
+}
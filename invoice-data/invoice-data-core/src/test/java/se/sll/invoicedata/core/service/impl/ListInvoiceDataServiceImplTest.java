@@ -25,7 +25,9 @@ package se.sll.invoicedata.core.service.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -39,6 +41,7 @@ import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataReques
 import riv.sll.invoicedata.listinvoicedataresponder._1.ListInvoiceDataRequest;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+import se.sll.invoicedata.core.service.dto.ResultPage;
 import se.sll.invoicedata.core.support.TestSupport;
 
 /**
@@ -187,6 +190,51 @@ public class ListInvoiceDataServiceImplTest extends TestSupport {
         assertEquals(3, invoiceDataList.size());
     }
     
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testListInvoiceDataPage() {
+        final Event e = createSampleEvent();
+        e.setSupplierId("Supplier_page");
+        for (int i = 0; i < 5; i++) {
+            e.setEventId("invoicedatapage." + i);
+            e.setAcknowledgementId(UUID.randomUUID().toString());
+            invoiceDataService.registerEvent(e);
+            create_And_Assert_Invoice_Data(e);
+        }
+
+        final ListInvoiceDataRequest invoiceListRequest = new ListInvoiceDataRequest();
+        invoiceListRequest.setSupplierId(e.getSupplierId());
+        invoiceListRequest.setPageSize(2);
+
+        final Set<String> referenceIds = new HashSet<String>();
+        int pages = 0;
+        ResultPage<InvoiceDataHeader> page;
+        do {
+            page = invoiceDataService.listInvoiceDataPage(invoiceListRequest);
+            for (final InvoiceDataHeader header : page.getContent()) {
+                assertEquals(e.getSupplierId(), header.getSupplierId());
+                referenceIds.add(header.getReferenceId());
+            }
+            invoiceListRequest.setContinuationToken(page.getContinuationToken());
+            pages++;
+        } while (page.getContinuationToken() != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, referenceIds.size());
+        assertEquals(1, page.getContent().size());
+    }
+
+    @Test (expected=InvoiceDataServiceException.class)
+    @Transactional
+    @Rollback(true)
+    public void testListInvoiceDataPage_Invalid_PageSize() {
+        final ListInvoiceDataRequest invoiceListRequest = new ListInvoiceDataRequest();
+        invoiceListRequest.setSupplierId("Supplier_page");
+        invoiceListRequest.setPageSize(0);
+        invoiceDataService.listInvoiceDataPage(invoiceListRequest);
+    }
+
     private void create_And_Assert_Invoice_Data(Event e) {
     	final CreateInvoiceDataRequest createReq = new CreateInvoiceDataRequest();
         createReq.setSupplierId(e.getSupplierId());
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import se.sll.invoicedata.core.model.repository.LockRepository;
+import se.sll.invoicedata.core.support.TestSupport;
+
+/**
+ * Unit tests LockService.
+ * 
+ * @author Peter
+ *
+ */
+public class LockServiceTest extends TestSupport {
+
+    @Autowired
+    private DatabaseLockStore databaseLockStore;
+
+    @Autowired
+    private LockRepository lockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    public void testAcquire_All_Or_Nothing() {
+        final LockService lockService = new LockService();
+        
+        assertTrue(lockService.acquire("A"));
+        assertFalse(lockService.acquire("A"));
+        assertFalse(lockService.acquire(Arrays.asList("B", "A")));
+        
+        // B must not be held after a failed attempt
+        assertTrue(lockService.acquire(Arrays.asList("B", "C", "B")));
+        
+        lockService.release("A");
+        lockService.release(Arrays.asList("B", "C"));
+        assertTrue(lockService.acquire(Arrays.asList("A", "B", "C")));
+    }
+    
+    @Test
+    public void testAcquire_Wait_For_Release() throws InterruptedException {
+        final LockService lockService = new LockService();
+        ReflectionTestUtils.setField(lockService, "waitTimeout", 5000L);
+        
+        assertTrue(lockService.acquire("A"));
+        final Thread t = new Thread() {
+            @Override
+            public void run() {
+                lockService.release("A");
+            }
+        };
+        t.start();
+        assertTrue(lockService.acquire("A"));
+        t.join();
+        
+        ReflectionTestUtils.setField(lockService, "waitTimeout", 100L);
+        assertFalse(lockService.acquire("A"));
+    }
+    
+    @Test
+    public void testDatabaseLockStore() {
+        assertTrue(databaseLockStore.tryAcquire(Arrays.asList("db-A", "db-B")));
+        assertFalse(databaseLockStore.tryAcquire(Arrays.asList("db-C", "db-B")));
+        
+        // db-C must not be held after a failed attempt
+        assertTrue(databaseLockStore.tryAcquire(Collections.singletonList("db-C")));
+        
+        databaseLockStore.release(Arrays.asList("db-A", "db-B", "db-C"));
+        assertTrue(databaseLockStore.tryAcquire(Arrays.asList("db-A", "db-B", "db-C")));
+        databaseLockStore.release(Arrays.asList("db-A", "db-B", "db-C"));
+    }
+
+    @Test
+    public void testDatabaseLockStore_Renew() {
+        final List<String> names = Arrays.asList("db-R1", "db-R2");
+        assertTrue(databaseLockStore.tryAcquire(names));
+        try {
+            // as if held for a long time
+            final Date expired = new Date(System.currentTimeMillis() - 3600000L);
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    lockRepository.renewByNameInAndOwner(names, ManagementFactory.getRuntimeMXBean().getName(), expired);
+                }
+            });
+
+            assertEquals(2, databaseLockStore.renew());
+            // still held, i.e. not removed as expired
+            assertFalse(databaseLockStore.tryAcquire(Collections.singletonList("db-R1")));
+        } finally {
+            databaseLockStore.release(names);
+        }
+        assertEquals(0, databaseLockStore.renew());
+    }
+}
@@ -21,8 +21,11 @@ package se.sll.invoicedata.core.service.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
@@ -38,11 +41,13 @@ import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.Item;
 import riv.sll.invoicedata._1.RegisteredEvent;
 import riv.sll.invoicedata.getinvoicedataresponder._1.GetInvoiceDataRequest;
+import se.sll.invoicedata.core.service.InvoiceDataErrorCodeEnum;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.service.PriceListService;
 import se.sll.invoicedata.core.service.dto.Price;
 import se.sll.invoicedata.core.service.dto.PriceList;
+import se.sll.invoicedata.core.service.dto.ServiceResponse;
 import se.sll.invoicedata.core.support.TestSupport;
 
 public class PriceListServiceImplTest extends TestSupport {
@@ -174,6 +179,25 @@ public class PriceListServiceImplTest extends TestSupport {
     	assertPrice(e, 465);
     }
     
+    @Test
+    public void testCommitted_Change_In_Price_With_Actual_Event() {
+        final PriceList priceList = createSamplePriceList();
+        priceList.setSupplierId("Tolk.002");
+        priceListService.savePriceLists(Collections.singletonList(priceList));
+
+        //With pre-configured price 650 * 3 = 1950
+        assertEquals(1950, createAndFetchRegisteredEvent(priceList.getSupplierId(), 
+                priceList.getServiceCode()).getTotalAmount().intValue());
+
+        //change in price from 650 to 155 is visible when committed
+        priceList.getPrices().get(0).setPrice(BigDecimal.valueOf(155));
+        priceListService.savePriceLists(Collections.singletonList(priceList));
+
+        //155 * 3 = 465
+        assertEquals(465, createAndFetchRegisteredEvent(priceList.getSupplierId(), 
+                priceList.getServiceCode()).getTotalAmount().intValue());
+    }
+
     private void assertPrice(Event e, long pris) {
     	invoiceDataService.registerEvent(e);
     	
@@ -235,7 +259,48 @@ public class PriceListServiceImplTest extends TestSupport {
 	    assertEquals(1950, rE.getTotalAmount().intValue());
     }
     
-    @Test(expected = DataIntegrityViolationException.class)
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testSave_Bulk_Only_Changes() {
+        final PriceList priceList1 = createSamplePriceList();
+        final PriceList priceList2 = createSamplePriceList();
+        priceList2.setServiceCode("Teckentolk");
+        
+        List<ServiceResponse> responses = priceListService.savePriceLists(Arrays.asList(priceList1, priceList2));
+        assertEquals("created", responses.get(0).getMessage());
+        assertEquals("created", responses.get(1).getMessage());
+        final Long id1 = responses.get(0).getId();
+        final Long id2 = responses.get(1).getId();
+        assertNotNull(id1);
+        assertNotNull(id2);
+        
+        responses = priceListService.savePriceLists(Arrays.asList(priceList1, priceList2));
+        assertEquals("unchanged", responses.get(0).getMessage());
+        assertEquals("unchanged", responses.get(1).getMessage());
+        
+        // change one price, remove one, and add one
+        priceList1.getPrices().get(0).setPrice(BigDecimal.valueOf(155.25));
+        priceList1.getPrices().get(1).setItemId("item.3");
+        responses = priceListService.savePriceLists(Arrays.asList(priceList1, priceList2));
+        assertEquals("updated", responses.get(0).getMessage());
+        assertEquals(id1, responses.get(0).getId());
+        assertEquals("unchanged", responses.get(1).getMessage());
+        assertEquals(id2, responses.get(1).getId());
+        
+        final PriceList saved = priceListService.getPriceList(id1);
+        assertEquals(2, saved.getPrices().size());
+        for (final Price price : saved.getPrices()) {
+            if ("item.1".equals(price.getItemId())) {
+                assertEquals(0, BigDecimal.valueOf(155.25).compareTo(price.getPrice()));
+            } else {
+                assertEquals("item.3", price.getItemId());
+            }
+        }
+        assertEquals(2, priceListService.getPriceLists().size());
+    }
+    
+    @Test(expected = InvoiceDataServiceException.class)
     public void testSave_duplicate_item_id_fail() {
         final PriceList priceList = createSamplePriceList();
         
@@ -246,6 +311,52 @@ public class PriceListServiceImplTest extends TestSupport {
     }
     
     
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testSave_Bulk_duplicate_item_id_on_update_fail() {
+        final PriceList priceList = createSamplePriceList();
+        final Long id = priceListService.savePriceLists(Collections.singletonList(priceList)).get(0).getId();
+
+        priceList.setId(id);
+        priceList.getPrices().get(1).setItemId("item.1");
+        try {
+            priceListService.savePriceLists(Collections.singletonList(priceList));
+            fail("duplicate itemId must be rejected");
+        } catch (InvoiceDataServiceException e) {
+            assertEquals(InvoiceDataErrorCodeEnum.VALIDATION_ERROR, e.getCode());
+        }
+        assertEquals(2, priceListService.getPriceList(id).getPrices().size());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testSave_Bulk_Update_Valid_From_By_Id() {
+        final PriceList priceList = createSamplePriceList();
+        final Long id = priceListService.savePriceLists(Collections.singletonList(priceList)).get(0).getId();
+
+        final Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.YEAR, -1);
+        priceList.setId(id);
+        priceList.setValidFrom(cal.getTime());
+        priceList.setSupplierId("Tolk.003");
+        final ServiceResponse response = priceListService.savePriceLists(Collections.singletonList(priceList)).get(0);
+        assertEquals("updated", response.getMessage());
+        assertNull(priceListService.getPriceList(id));
+
+        // replaced, since the logical key is immutable
+        final PriceList saved = priceListService.getPriceList(response.getId());
+        assertEquals("Tolk.003", saved.getSupplierId());
+        assertEquals(2, saved.getPrices().size());
+        assertEquals(CoreUtil.floorDate(cal.getTime()), CoreUtil.floorDate(saved.getValidFrom()));
+        assertEquals(1, priceListService.getPriceLists().size());
+
+        // same list again is unchanged
+        priceList.setId(response.getId());
+        assertEquals("unchanged", priceListService.savePriceLists(Collections.singletonList(priceList)).get(0).getMessage());
+    }
+
     PriceList createSamplePriceList() {
     	return _createSamplePriceList(Calendar.getInstance());
     }
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.GenericXmlApplicationContext;
+
+import riv.sll.invoicedata._1.Event;
+import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
+import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.service.InvoiceDataService;
+
+/**
+ * Throughput benchmark of concurrent event registrations with the HikariCP connection pool 
+ * versus the former commons-dbcp setup, i.e. with a validation query on every borrow. <p>
+ * 
+ * The full service is started with the test profile (in-memory H2), and the <code>dbcp</code> variant replaces 
+ * the data source with the one in <code>register-benchmark-dbcp.xml</code>. Point <code>database.url</code> to 
+ * a MySQL schema (<code>~/.invoicedata-config.properties</code>) to measure production like figures, since 
+ * the validation round trip is much cheaper in-memory. <p>
+ * 
+ * Not a unit test, run with <code>mvn test-compile exec:java -Dexec.classpathScope=test 
+ * -Dexec.mainClass=se.sll.invoicedata.core.service.impl.RegisterEventBenchmark</code>, 
+ * or from the IDE.
+ * 
+ * @author Peter
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx1g" })
+@Threads(4)
+public class RegisterEventBenchmark {
+
+    @Param({ "hikaricp", "dbcp" })
+    public String pool;
+
+    private GenericXmlApplicationContext context;
+    private InvoiceDataService invoiceDataService;
+    private final AtomicLong seq = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.load("classpath:/invoice-data-service.xml");
+        if ("dbcp".equals(pool)) {
+            context.load("classpath:/register-benchmark-dbcp.xml");
+        }
+        context.refresh();
+        invoiceDataService = context.getBean(InvoiceDataService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void registerEvent() {
+        invoiceDataService.registerEvent(createEvent(seq.incrementAndGet()));
+    }
+
+    //
+    private static Event createEvent(final long n) {
+        final BusinessEventEntity entity = new BusinessEventEntity();
+        entity.setEventId("benchmark-event-" + n);
+        entity.setHealthcareFacility("HSA_ID_001");
+        entity.setRefContractId("Contract_1");
+        entity.setAcknowledgementId(UUID.randomUUID().toString());
+        entity.setAcknowledgedBy("Peter Larsson");
+        entity.setSupplierName("Dummy");
+        entity.setAcknowledgedTime(new Date());
+        entity.setHealthCareCommission("BVC");
+        entity.setServiceCode("XYZ");
+        entity.setPaymentResponsible("HSF");
+        entity.setSupplierId("benchmark." + (n % 100));
+        entity.setStartTime(new Date());
+        entity.setEndTime(new Date());
+        for (int i = 0; i < 3; i++) {
+            final ItemEntity item = new ItemEntity();
+            item.setItemId("IT10" + i);
+            item.setDescription("Item is kind of a product");
+            item.setQty(BigDecimal.valueOf(2.0));
+            item.setPrice(BigDecimal.valueOf(350.0));
+            entity.addItemEntity(item);
+        }
+        return EntityBeanConverter.fromBusinessEventEntityToRegisteredEvent(entity);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RegisterEventBenchmark.class.getSimpleName()).build()).run();
+    }
+}
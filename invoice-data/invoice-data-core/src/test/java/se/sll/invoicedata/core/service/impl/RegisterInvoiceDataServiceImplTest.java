@@ -24,9 +24,12 @@ package se.sll.invoicedata.core.service.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -47,6 +50,7 @@ import se.sll.invoicedata.core.model.entity.BusinessEventEntity;
 import se.sll.invoicedata.core.model.repository.BusinessEventRepository;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
+import se.sll.invoicedata.core.support.RecordingRatingService;
 import se.sll.invoicedata.core.support.TestSupport;
 
 /**
@@ -60,6 +64,12 @@ public class RegisterInvoiceDataServiceImplTest extends TestSupport {
 
     @Autowired
     private BusinessEventRepository businessEventRepository;
+
+    @Autowired
+    private KnownEventIdService knownEventIds;
+
+    @Autowired
+    private RecordingRatingService ratingService;
 	
 	@Test
     @Transactional
@@ -219,11 +229,123 @@ public class RegisterInvoiceDataServiceImplTest extends TestSupport {
         assertEquals(3, credits);
     }
     
+    @Test
+    public void testRegisterEvents_Batch_With_Rejected_Events() {
+        final String supplierId = "test-supplier-" + UUID.randomUUID().toString();
+
+        final Event e1 = createSampleEvent();
+        e1.setSupplierId(supplierId);
+        e1.setEventId("batch-1");
+
+        final Event e2 = createSampleEvent();
+        e2.setSupplierId(supplierId);
+        e2.setEventId("batch-2");
+        e2.getItemList().get(0).setQty(new BigDecimal(9999999));
+
+        // no price list exists
+        final Event e3 = createSampleEvent();
+        e3.setSupplierId(supplierId);
+        e3.setEventId("batch-3");
+        e3.getItemList().get(0).setPrice(null);
+
+        final Event e4 = createSampleEvent();
+        e4.setSupplierId(supplierId);
+        e4.setEventId("batch-1");
+
+        final List<InvoiceDataServiceException> results = invoiceDataService.registerEvents(Arrays.asList(e1, e2, e3, e4));
+
+        assertEquals(4, results.size());
+        assertNull(results.get(0));
+        assertNotNull(results.get(1));
+        assertNotNull(results.get(2));
+        assertNull(results.get(3));
+
+        GetInvoiceDataRequest getIDRequest = new GetInvoiceDataRequest();
+        getIDRequest.setSupplierId(supplierId);
+        final List<RegisteredEvent> l = invoiceDataService.getAllUnprocessedBusinessEvents(getIDRequest);
+
+        assertEquals(1, l.size());
+        assertEquals(e4.getAcknowledgementId(), l.get(0).getAcknowledgementId());
+    }
+
+    @Test (expected = InvoiceDataServiceException.class)
+    public void testRegisterEvents_Batch_Exceeds_Limit_Fail() {
+        invoiceDataService.registerEvents(Collections.nCopies(1001, createSampleEvent()));
+    }
+
     @Transactional(propagation=Propagation.REQUIRES_NEW)
     protected void registerEvent(final Event e) {
         invoiceDataService.registerEvent(e);
     }
     
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testRegisterEvent_Known_Event_Ids() throws InterruptedException {
+        for (int i = 0; i < 100 && !knownEventIds.isReady(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(knownEventIds.isReady());
+
+        final Event e = createSampleEvent();
+        e.setEventId("known-" + UUID.randomUUID());
+        invoiceDataService.registerEvent(e);
+        assertTrue(knownEventIds.mightExist(e.getEventId()));
+        // compared as by the database, i.e. case insensitive and trailing spaces ignored
+        assertTrue(knownEventIds.mightExist(e.getEventId().toUpperCase() + " "));
+        // other than ASCII is always looked up
+        assertTrue(knownEventIds.mightExist("\u00e4-" + UUID.randomUUID()));
+
+        // the previous pending event is found and replaced
+        final String acknowledgementId = UUID.randomUUID().toString();
+        e.setAcknowledgementId(acknowledgementId);
+        invoiceDataService.registerEvent(e);
+        assertEquals(acknowledgementId, getEvent(e.getEventId()).getAcknowledgementId());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testRegisterEvent_Unchanged_Is_Skipped() {
+        final Event e = createSampleEvent();
+        e.setEventId("unchanged-" + UUID.randomUUID());
+        invoiceDataService.registerEvent(e);
+        final BusinessEventEntity registered = getEvent(e.getEventId());
+        assertNotNull(registered.getContentHash());
+
+        // identical, the registered event is kept
+        invoiceDataService.registerEvent(e);
+        assertEquals(registered.getId(), getEvent(e.getEventId()).getId());
+        invoiceDataService.registerEvents(Arrays.asList(e, e));
+        assertEquals(registered.getId(), getEvent(e.getEventId()).getId());
+
+        // changed, the registered event is replaced
+        e.getItemList().get(0).setQty(BigDecimal.valueOf(3));
+        invoiceDataService.registerEvent(e);
+        final BusinessEventEntity replaced = getEvent(e.getEventId());
+        assertTrue(!registered.getId().equals(replaced.getId()));
+        assertTrue(!registered.getContentHash().equals(replaced.getContentHash()));
+    }
+
+    @Test
+    public void testRegisterEvent_Rated_Outside_Transaction() {
+        final Event e = createSampleEvent();
+        e.setSupplierId("staged-" + UUID.randomUUID());
+        e.setEventId("staged-" + UUID.randomUUID());
+        e.getItemList().get(0).setPrice(null);
+        ratingService.setFixedPrice(e.getSupplierId(), BigDecimal.TEN);
+        try {
+            invoiceDataService.registerEvent(e);
+
+            assertEquals(Boolean.FALSE, ratingService.isRatedInTransaction(e.getSupplierId()));
+            // the write transaction is committed, qty 2 rated at 10
+            assertEquals(20, getEvent(e.getEventId()).getTotalAmount().intValue());
+        } finally {
+            // committed, i.e. not rolled back
+            businessEventRepository.delete(businessEventRepository.findBySupplierIdAndPendingIsTrue(e.getSupplierId()));
+        }
+    }
+
     @Transactional(propagation=Propagation.REQUIRES_NEW)
     protected void clean() {
         businessEventRepository.deleteAll();
@@ -22,7 +22,9 @@
  */
 package se.sll.invoicedata.core.service.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 import riv.sll.invoicedata._1.Event;
 import riv.sll.invoicedata._1.InvoiceData;
 import riv.sll.invoicedata.createinvoicedataresponder._1.CreateInvoiceDataRequest;
+import se.sll.invoicedata.core.jmx.StatusBean;
 import se.sll.invoicedata.core.service.InvoiceDataService;
 import se.sll.invoicedata.core.service.InvoiceDataServiceException;
 import se.sll.invoicedata.core.support.TestSupport;
@@ -44,6 +47,9 @@ public class ViewInvoiceDataServiceImplTest extends TestSupport {
 	
 	@Autowired
     private InvoiceDataService invoiceDataService;
+	
+	@Autowired
+	private StatusBean statusBean;
 
 	@Test
     @Transactional
@@ -66,6 +72,30 @@ public class ViewInvoiceDataServiceImplTest extends TestSupport {
         assertNotNull(invoiceData.getRegisteredEventList().get(0).getItemList().get(0).getItemId());
     }
 
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void testGetSupplierIdByReferenceId() {
+        final Event e = createSampleEvent();
+        invoiceDataService.registerEvent(e);
+
+        final CreateInvoiceDataRequest createReq = new CreateInvoiceDataRequest();
+        createReq.setSupplierId(e.getSupplierId());
+        createReq.setPaymentResponsible(e.getPaymentResponsible());
+        createReq.setCreatedBy("testGetSupplierIdByReferenceId");
+        createReq.getAcknowledgementIdList().add(e.getAcknowledgementId());
+        final String referenceId = invoiceDataService.createInvoiceData(createReq);
+
+        assertEquals(e.getSupplierId(), invoiceDataService.getSupplierIdByReferenceId(referenceId));
+    }
+
+    @Test (expected = InvoiceDataServiceException.class)
+    @Transactional
+    @Rollback(true)
+    public void testGetSupplierIdBy_Unknown_ReferenceId() {
+        invoiceDataService.getSupplierIdByReferenceId("0");
+    }
+
     @Test (expected = InvoiceDataServiceException.class)
     @Transactional
     @Rollback(true)
@@ -84,4 +114,67 @@ public class ViewInvoiceDataServiceImplTest extends TestSupport {
         invoiceDataService.getInvoiceDataByReferenceId(referenceId);		
     }
 
+    @Test
+    public void testViewInvoiceData_From_Second_Level_Cache() {
+        final Event e = createSampleEvent();
+        e.setSupplierId("cache.001");
+        e.setPaymentResponsible("cache.HSF");
+        invoiceDataService.registerEvent(e);
+
+        final CreateInvoiceDataRequest createReq = new CreateInvoiceDataRequest();
+        createReq.setSupplierId(e.getSupplierId());
+        createReq.setPaymentResponsible(e.getPaymentResponsible());
+        createReq.setCreatedBy("testViewInvoiceData_From_Second_Level_Cache");
+        createReq.getAcknowledgementIdList().add(e.getAcknowledgementId());
+        final String referenceId = invoiceDataService.createInvoiceData(createReq);
+
+        try {
+            final InvoiceData first = invoiceDataService.getInvoiceDataByReferenceId(referenceId);
+            final long hits = statusBean.getCacheHitCount();
+            final InvoiceData second = invoiceDataService.getInvoiceDataByReferenceId(referenceId);
+
+            assertTrue(statusBean.getCacheHitCount() > hits);
+            assertEquals(first.getTotalAmount(), second.getTotalAmount());
+            assertEquals(1, second.getRegisteredEventList().size());
+            assertEquals(1, second.getRegisteredEventList().get(0).getItemList().size());
+        } finally {
+            // committed, i.e. not rolled back, events are removed by cascade
+            getInvoiceDataRepository().delete(Long.valueOf(referenceId));
+        }
+    }
+
+    @Test
+    public void testCreateInvoiceData_Keeps_Other_Events_Cached() {
+        final String first = createCommittedInvoiceData("cache.002");
+        String second = null;
+        try {
+            invoiceDataService.getInvoiceDataByReferenceId(first);
+            second = createCommittedInvoiceData("cache.003");
+
+            // only the events assigned to the second invoice data are evicted
+            final long misses = statusBean.getCacheMissCount();
+            invoiceDataService.getInvoiceDataByReferenceId(first);
+            assertEquals(misses, statusBean.getCacheMissCount());
+        } finally {
+            getInvoiceDataRepository().delete(Long.valueOf(first));
+            if (second != null) {
+                getInvoiceDataRepository().delete(Long.valueOf(second));
+            }
+        }
+    }
+
+    // registers an event and creates invoice data for it (committed), and returns the reference id
+    private String createCommittedInvoiceData(final String supplierId) {
+        final Event e = createSampleEvent();
+        e.setSupplierId(supplierId);
+        e.setPaymentResponsible(supplierId + ".HSF");
+        invoiceDataService.registerEvent(e);
+
+        final CreateInvoiceDataRequest createReq = new CreateInvoiceDataRequest();
+        createReq.setSupplierId(e.getSupplierId());
+        createReq.setPaymentResponsible(e.getPaymentResponsible());
+        createReq.setCreatedBy("testCreateInvoiceData_Keeps_Other_Events_Cached");
+        createReq.getAcknowledgementIdList().add(e.getAcknowledgementId());
+        return invoiceDataService.createInvoiceData(createReq);
+    }
 }
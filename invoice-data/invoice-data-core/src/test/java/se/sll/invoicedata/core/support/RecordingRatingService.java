@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2013 SLL. <http://sll.se>
+ *
+ * This file is part of Invoice-Data.
+ *
+ *     Invoice-Data is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Invoice-Data is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Invoice-Data.  If not, see <http://www.gnu.org/licenses/lgpl.txt>.
+ */
+
+package se.sll.invoicedata.core.support;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import se.sll.invoicedata.core.model.entity.ItemEntity;
+import se.sll.invoicedata.core.service.RatingService;
+
+/**
+ * Decorates the rating service in the test context, see invoice-data-test.xml. <p>
+ * 
+ * Records if items are rated within a transaction, and rates items of suppliers with a fixed 
+ * price without any price list. Other items are rated by the decorated service.
+ * 
+ * @author Peter
+ *
+ */
+public class RecordingRatingService implements RatingService {
+
+    private final RatingService ratingService;
+    private final Map<String, BigDecimal> fixedPrices = new ConcurrentHashMap<String, BigDecimal>();
+    private final Map<String, Boolean> ratedInTransaction = new ConcurrentHashMap<String, Boolean>();
+
+    public RecordingRatingService(final RatingService ratingService) {
+        this.ratingService = ratingService;
+    }
+
+    @Override
+    public BigDecimal rate(ItemEntity itemEntity) {
+        final String supplierId = itemEntity.getEvent().getSupplierId();
+        ratedInTransaction.put(supplierId, TransactionSynchronizationManager.isActualTransactionActive());
+        final BigDecimal price = fixedPrices.get(supplierId);
+        return (price == null) ? ratingService.rate(itemEntity) : price;
+    }
+
+    @Override
+    public void priceListsChanged() {
+        ratingService.priceListsChanged();
+    }
+
+    /**
+     * Rates all items of a supplier at a fixed price.
+     * 
+     * @param supplierId the supplier.
+     * @param price the price.
+     */
+    public void setFixedPrice(final String supplierId, final BigDecimal price) {
+        fixedPrices.put(supplierId, price);
+    }
+
+    /**
+     * Returns if the last item of a supplier was rated within a transaction.
+     * 
+     * @param supplierId the supplier.
+     * @return true if rated within a transaction, false if not, and null if never rated.
+     */
+    public Boolean isRatedInTransaction(final String supplierId) {
+        return ratedInTransaction.get(supplierId);
+    }
+}
@@ -56,7 +56,7 @@ import se.sll.invoicedata.core.service.impl.CoreUtil;
  *
  */
 @RunWith(SpringJUnit4ClassRunner.class)
-@ContextConfiguration(locations="classpath:/invoice-data-service.xml")
+@ContextConfiguration(locations={ "classpath:/invoice-data-service.xml", "classpath:/invoice-data-test.xml" })
 @ActiveProfiles(profiles={"test"}, inheritProfiles=true)
 public abstract class TestSupport {
 